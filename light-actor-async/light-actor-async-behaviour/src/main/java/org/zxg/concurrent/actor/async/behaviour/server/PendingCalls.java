@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.behaviour.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.DownMessage;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.async.core.TypeMatcher;
+import org.zxg.concurrent.actor.async.core.exception.ActorException;
+import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
+import org.zxg.concurrent.actor.async.core.exception.ActorTimeoutException;
+
+/**
+ * The calls to a server which have not been replied, indexed by correlation
+ * id. A single watcher actor, created with the table on the first call,
+ * monitors the server and fails all the pending calls when it stops; the
+ * watcher lives as long as the server.
+ * <p>
+ * The handlers run on the thread which replies or fails the call. An exception
+ * thrown by a handler does not reach the replier, it is passed to the uncaught
+ * exception handler of the current thread.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class PendingCalls {
+
+	private static final class PendingCall {
+
+		Consumer<Object> responseHandler;
+		Consumer<? super ActorException> failureHandler;
+		volatile ScheduledFuture<?> timeoutFuture;
+
+		PendingCall(Consumer<Object> responseHandler, Consumer<? super ActorException> failureHandler) {
+			this.responseHandler = responseHandler;
+			this.failureHandler = failureHandler;
+		}
+	}
+
+	private Actor server;
+	private ConcurrentMap<Long, PendingCall> calls;
+	private AtomicLong idGenerator;
+	private volatile boolean isServerStopped;
+
+	PendingCalls(Actor server) {
+		this.server = server;
+		this.calls = new ConcurrentHashMap<>();
+		this.idGenerator = new AtomicLong();
+		Actor watcher = new Actor(server.getGroup()) {
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().match(new TypeMatcher(DownMessage.class), message -> {
+					failAll();
+					stop();
+				}).build();
+			}
+		};
+		watcher.start();
+		watcher.monitor(server);
+		if (server.isStopped()) {
+			failAll();
+			watcher.stop();
+		}
+	}
+
+	/**
+	 * @return the correlation id of the call
+	 */
+	long call(Object request, Consumer<Object> responseHandler,
+			Consumer<? super ActorException> failureHandler) {
+		long id = idGenerator.incrementAndGet();
+		calls.put(id, new PendingCall(responseHandler, failureHandler));
+		if (isServerStopped) {
+			fail(id, new ActorStoppedException(server));
+			return id;
+		}
+		try {
+			server.send(new Request(request, this, id));
+		} catch (RuntimeException ex) {
+			calls.remove(id);
+			throw ex;
+		}
+		return id;
+	}
+
+	/**
+	 * Fails the call with an {@link ActorTimeoutException} if it is not replied
+	 * within the timeout. The timer is cancelled when the call completes, which
+	 * also removes it from a timer executor whose remove-on-cancel policy is
+	 * set.
+	 */
+	void timeout(long id, long timeout, TimeUnit unit) {
+		PendingCall call = calls.get(id);
+		if (call == null) {
+			return;
+		}
+		ScheduledFuture<?> timeoutFuture = server.getGroup().schedule(() -> timeout(id), timeout, unit);
+		call.timeoutFuture = timeoutFuture;
+		// the call may have completed before the future was kept
+		if (!calls.containsKey(id)) {
+			timeoutFuture.cancel(false);
+		}
+	}
+
+	void reply(long id, Object response) {
+		PendingCall call = calls.remove(id);
+		if (call != null) {
+			cancelTimeout(call);
+			try {
+				call.responseHandler.accept(response);
+			} catch (Exception ex) {
+				report(ex);
+			}
+		}
+	}
+
+	/**
+	 * Fails the call if it has not been replied.
+	 */
+	private void timeout(long id) {
+		if (calls.containsKey(id)) {
+			fail(id, new ActorTimeoutException(server));
+		}
+	}
+
+	private void fail(long id, ActorException failure) {
+		PendingCall call = calls.remove(id);
+		if (call != null) {
+			cancelTimeout(call);
+			try {
+				call.failureHandler.accept(failure);
+			} catch (Exception ex) {
+				report(ex);
+			}
+		}
+	}
+
+	private static void cancelTimeout(PendingCall call) {
+		ScheduledFuture<?> timeoutFuture = call.timeoutFuture;
+		if (timeoutFuture != null) {
+			timeoutFuture.cancel(false);
+		}
+	}
+
+	private static void report(Exception ex) {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+	}
+
+	private void failAll() {
+		isServerStopped = true;
+		ActorStoppedException failure = new ActorStoppedException(server);
+		for (Long id : calls.keySet()) {
+			fail(id, failure);
+		}
+	}
+}
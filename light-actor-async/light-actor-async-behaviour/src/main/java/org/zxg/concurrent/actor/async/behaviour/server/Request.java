@@ -16,22 +16,31 @@
  */
 package org.zxg.concurrent.actor.async.behaviour.server;
 
-import org.zxg.concurrent.actor.async.core.Actor;
-
 /**
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
  */
 public final class Request {
 
 	public final Object content;
-	private final Actor from;
+	private final PendingCalls calls;
+	private final long id;
 
-	Request(Object content, Actor from) {
+	Request(Object content, PendingCalls calls, long id) {
 		this.content = content;
-		this.from = from;
+		this.calls = calls;
+		this.id = id;
 	}
 
+	/**
+	 * Completes the call, a second reply is ignored.
+	 * <p>
+	 * <b>The response handler of the call runs synchronously on the current
+	 * thread</b>, before this method returns: a future returned by
+	 * {@link Server#ask(Object)} is completed here, with the stages chained to
+	 * it. A slow handler therefore delays the replying actor. The calls made
+	 * with a client actor only enqueue the handler to that client here.
+	 */
 	public void reply(Object response) {
-		this.from.send(response);
+		this.calls.reply(id, response);
 	}
 }
@@ -17,17 +17,17 @@
 package org.zxg.concurrent.actor.async.behaviour.server;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.zxg.concurrent.actor.async.core.Actor;
-import org.zxg.concurrent.actor.async.core.DownMessage;
-import org.zxg.concurrent.actor.async.core.Receive;
-import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
-import org.zxg.concurrent.actor.async.core.TypeMatcher;
+import org.zxg.concurrent.actor.async.core.ActorState;
+import org.zxg.concurrent.actor.async.core.exception.ActorException;
 import org.zxg.concurrent.actor.async.core.exception.ActorInterruptedException;
 import org.zxg.concurrent.actor.async.core.exception.ActorStateException;
-import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
+import org.zxg.concurrent.actor.async.core.exception.ActorTimeoutException;
 
 /**
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
@@ -35,6 +35,7 @@ import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
 public class Server {
 
 	public final Actor server;
+	private volatile PendingCalls pendingCalls;
 
 	public Server(Actor server) {
 		Objects.requireNonNull(server);
@@ -58,59 +59,96 @@ public class Server {
 				failure -> client.execute(() -> failureHandler.accept(failure)));
 	}
 
+	/**
+	 * The handlers are called by the thread which replies, or by the thread
+	 * which fails the call when the server stops, so they should be short. See
+	 * {@link Request#reply(Object)}.
+	 */
 	protected final void call(Object request, Consumer<Object> responseHandler,
 			Consumer<ActorStateException> failureHandler) {
-		server.execute(() -> {
-			Actor actor = new Actor(server.getGroup()) {
-				@Override
-				protected void preStart() throws Exception {
-					server.send(new Request(request, this));
-				}
+		ActorState state = server.getState();
+		if (state != ActorState.STARTED) {
+			failureHandler.accept(new ActorStateException(server, state));
+			return;
+		}
+		// a call without timeout only fails because of the state of the server
+		pendingCalls().call(request, responseHandler,
+				failure -> failureHandler.accept((ActorStateException) failure));
+	}
 
-				@Override
-				protected Receive createReceive() {
-					return new ReceiveBuilder().match(new TypeMatcher(DownMessage.class), message -> {
-						failureHandler.accept(new ActorStoppedException(server));
-						stop();
-					}).matchAny(response -> {
-						responseHandler.accept(response);
-						stop();
-					}).build();
+	private PendingCalls pendingCalls() {
+		PendingCalls pendingCalls = this.pendingCalls;
+		if (pendingCalls == null) {
+			synchronized (this) {
+				pendingCalls = this.pendingCalls;
+				if (pendingCalls == null) {
+					pendingCalls = new PendingCalls(server);
+					this.pendingCalls = pendingCalls;
 				}
-			};
-			actor.monitor(server);
-			actor.start();
-		}, failureHandler);
+			}
+		}
+		return pendingCalls;
+	}
+
+	/**
+	 * Sends the request and returns the future of the response, which is
+	 * completed by the thread which replies, so the stages chained to it
+	 * without an executor run on the server. The future is completed
+	 * exceptionally with an {@link ActorStateException} if the server stops
+	 * before replying.
+	 */
+	public final CompletableFuture<Object> ask(Object request) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		ActorState state = server.getState();
+		if (state != ActorState.STARTED) {
+			future.completeExceptionally(new ActorStateException(server, state));
+			return future;
+		}
+		pendingCalls().call(request, future::complete, future::completeExceptionally);
+		return future;
+	}
+
+	/**
+	 * Same as {@link #ask(Object)}, but the future is completed exceptionally
+	 * with an {@link ActorTimeoutException} if the server does not reply
+	 * within the timeout.
+	 */
+	public final CompletableFuture<Object> ask(Object request, long timeout, TimeUnit unit) {
+		Objects.requireNonNull(unit);
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		ActorState state = server.getState();
+		if (state != ActorState.STARTED) {
+			future.completeExceptionally(new ActorStateException(server, state));
+			return future;
+		}
+		PendingCalls pendingCalls = pendingCalls();
+		long id = pendingCalls.call(request, future::complete, future::completeExceptionally);
+		if (!future.isDone()) {
+			pendingCalls.timeout(id, timeout, unit);
+		}
+		return future;
 	}
 
 	public final Object call(Object request) throws ActorStateException {
-		Object waitObject = new Object();
-		AtomicReference<Object> responseRef = new AtomicReference<>();
-		AtomicReference<ActorStateException> failureRef = new AtomicReference<>();
-		call(request, response -> {
-			responseRef.set(response);
-			synchronized (waitObject) {
-				waitObject.notify();
-			}
-		}, failure -> {
-			failureRef.set(failure);
-			synchronized (waitObject) {
-				waitObject.notify();
-			}
-		});
-		synchronized (waitObject) {
-			if (responseRef.get() == null && failureRef.get() == null) {
-				try {
-					waitObject.wait();
-				} catch (InterruptedException ex) {
-					throw new ActorInterruptedException(ex);
-				}
+		return await(ask(request));
+	}
+
+	public final Object call(Object request, long timeout, TimeUnit unit)
+			throws ActorStateException, ActorTimeoutException {
+		return await(ask(request, timeout, unit));
+	}
+
+	private static Object await(CompletableFuture<Object> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			throw new ActorInterruptedException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof ActorException) {
+				throw (ActorException) cause;
 			}
-		}
-		if (failureRef.get() != null) {
-			throw failureRef.get();
-		} else {
-			return responseRef.get();
+			throw new ActorException(cause);
 		}
 	}
 }
@@ -16,56 +16,206 @@
  */
 package org.zxg.concurrent.actor.async.core;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.ScheduledFuture;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.zxg.concurrent.actor.async.core.exception.ActorStateException;
-import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
+import org.zxg.concurrent.actor.async.core.metrics.ActorInstrument;
+import org.zxg.concurrent.actor.async.core.metrics.Instrumentation;
 
 /**
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
  */
 public abstract class Actor implements Comparable<Actor> {
 
+	/**
+	 * How many sends in a row from an actor of another scheduler make the
+	 * receiver move to that scheduler, in the adaptive affinity mode.
+	 */
+	private static final int MIGRATION_THRESHOLD = 64;
+	/**
+	 * How many unmatched saved messages a run scans again, apart from the
+	 * throughput which only counts the received messages.
+	 */
+	private static final int SAVED_SCANS_LIMIT = 1024;
+	private static final ThreadLocal<Actor> CURRENT_ACTOR = new ThreadLocal<>();
+	private static final AtomicReferenceFieldUpdater<Actor, LinkedMailbox> SYSTEM_LANE_UPDATER = AtomicReferenceFieldUpdater
+			.newUpdater(Actor.class, LinkedMailbox.class, "systemLane");
+
 	Receive receive;
-	private Scheduler scheduler;
-	private Queue<Object> savedMessages;
-	private ScheduledFuture<?> afterFuture;
+	private volatile Scheduler scheduler;
+	private volatile Scheduler migrationTarget;
+	private Actor peer;
+	private int peerSendsSize;
+	Mailbox mailbox;
+	private volatile LinkedMailbox systemLane;
+	LinkedMailbox priorityLane;
+	Predicate<Object> priorityMatcher;
+	AtomicBoolean scheduledRef = new AtomicBoolean(true);
+	ReceiveTask receiveTask;
+	private Stash savedMessages;
+	private AfterTask afterTask;
+	private AfterTask idleTask;
+	private volatile boolean isPassivated;
+	private Object passivatedState;
 	private AtomicReference<ActorState> stateRef = new AtomicReference<>(ActorState.CREATED);
 	AtomicReference<String> nameRef = new AtomicReference<>();
-	private Set<Actor> links;
+	private ActorSet links;
 	private volatile boolean isTrapStop = false;
-	private Set<Actor> monitors;
-	private Set<Actor> monitoredActors;
+	private ActorSet monitors;
+	private ActorSet monitoredActors;
+	ActorInstrument instrument;
 
 	protected Actor(ActorGroup group) {
-		this.savedMessages = new LinkedList<>();
-		this.links = new ConcurrentSkipListSet<>();
-		this.monitors = new ConcurrentSkipListSet<>();
-		this.monitoredActors = new ConcurrentSkipListSet<>();
-		this.receive = createReceive();
-		if (this.receive == null) {
-			throw new NullPointerException();
+		this(group.nextScheduler());
+	}
+
+	/**
+	 * Creates an actor run by the scheduler of the group at the index.
+	 */
+	protected Actor(ActorGroup group, int schedulerIndex) {
+		this(group.getScheduler(schedulerIndex));
+	}
+
+	/**
+	 * Creates an actor run by the same scheduler as the other actor, so that
+	 * messages between them are not handed to another thread.
+	 */
+	protected Actor(Actor other) {
+		this(other.scheduler);
+	}
+
+	private Actor(Scheduler scheduler) {
+		int mailboxCapacity = mailboxCapacity();
+		if (mailboxCapacity <= 0) {
+			throw new IllegalArgumentException("The mailbox capacity should be a positive number.");
+		}
+		if (mailboxCapacity == Integer.MAX_VALUE) {
+			this.mailbox = new LinkedMailbox();
+		} else {
+			OverflowPolicy overflowPolicy = overflowPolicy();
+			if (overflowPolicy == null) {
+				throw new NullPointerException();
+			}
+			this.mailbox = new BoundedMailbox(this, mailboxCapacity, overflowPolicy);
+		}
+		Predicate<Object> priorityMatcher = priorityMatcher();
+		if (priorityMatcher != null) {
+			this.priorityMatcher = priorityMatcher;
+			this.priorityLane = new LinkedMailbox();
+		}
+		this.receiveTask = new ReceiveTask(this);
+		this.links = new ActorSet();
+		this.monitors = new ActorSet();
+		this.monitoredActors = new ActorSet();
+		initReceive();
+		Duration passivationTimeout = passivationTimeout();
+		if (passivationTimeout != null) {
+			if (passivationTimeout.isNegative() || passivationTimeout.isZero()) {
+				throw new IllegalArgumentException("The passivation timeout should be positive.");
+			}
+			this.idleTask = new AfterTask(this, passivationTimeout.toNanos());
+		}
+		this.scheduler = scheduler;
+		Instrumentation instrumentation = scheduler.group.getInstrumentation();
+		if (instrumentation != null) {
+			this.instrument = instrumentation.instrument(this);
 		}
-		this.scheduler = group.nextScheduler();
 	}
 
 	protected abstract Receive createReceive();
 
+	/**
+	 * Returns the maximum number of the messages the mailbox holds, called once
+	 * when the actor is created. {@link Integer#MAX_VALUE} means unbounded.
+	 */
+	protected int mailboxCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns what the bounded mailbox does with a message sent to it when it
+	 * is full, called once when the actor is created.
+	 */
+	protected OverflowPolicy overflowPolicy() {
+		return OverflowPolicy.DROP_NEWEST;
+	}
+
+	/**
+	 * Returns which messages are received before the other messages in the
+	 * mailbox, called once when the actor is created. {@code null} means none.
+	 * <p>
+	 * The matcher is tested by the sending thread. The priority messages are
+	 * kept in a lane of their own, which is not bounded by
+	 * {@link #mailboxCapacity()}, and they are received after the stop requests
+	 * and the notifications but before the other messages, in the order they
+	 * are sent.
+	 */
+	protected Predicate<Object> priorityMatcher() {
+		return null;
+	}
+
+	/**
+	 * Returns how long the actor may stay idle before it is passivated, called
+	 * once when the actor is created. {@code null} means never.
+	 * <p>
+	 * A passivated actor keeps its mailbox, name, links and monitors, but
+	 * releases its receive rules and timeouts. The next message sent to it
+	 * creates the receive rules again and activates it before it is received.
+	 * An actor with saved messages is not passivated.
+	 */
+	protected Duration passivationTimeout() {
+		return null;
+	}
+
+	/**
+	 * Called when the actor is passivated, the actor should release its own
+	 * state here.
+	 * 
+	 * @return the state passed to {@link #postActivate(Object)}, or
+	 *         {@code null} if the state is kept elsewhere
+	 */
+	protected Object prePassivate() throws Exception {
+		return null;
+	}
+
+	/**
+	 * Called when a passivated actor is activated, before it receives the
+	 * message which activates it.
+	 */
+	protected void postActivate(Object state) throws Exception {
+	}
+
 	protected void preStart() throws Exception {
 	}
 
 	protected void postStop(Object reason) {
 	}
 
+	/**
+	 * Actors are equal only to themselves, which the sets of their links and
+	 * monitors rely on.
+	 */
+	@Override
+	public final boolean equals(Object obj) {
+		return this == obj;
+	}
+
+	@Override
+	public final int hashCode() {
+		return super.hashCode();
+	}
+
 	@Override
 	public int compareTo(Actor other) {
-		return this.hashCode() - other.hashCode();
+		return Integer.compare(this.hashCode(), other.hashCode());
 	}
 
 	public final void start() {
@@ -79,6 +229,13 @@ public abstract class Actor implements Comparable<Actor> {
 		});
 	}
 
+	/**
+	 * Sends the message, applying the overflow policy if the mailbox is full.
+	 * 
+	 * @throws org.zxg.concurrent.actor.async.core.exception.MailboxFullException
+	 *             if the mailbox is full and the overflow policy is
+	 *             {@link OverflowPolicy#REJECT}
+	 */
 	public final void send(Object message) {
 		if (message == null) {
 			throw new NullPointerException();
@@ -86,7 +243,48 @@ public abstract class Actor implements Comparable<Actor> {
 		if (stateRef.get() != ActorState.STARTED) {
 			return;
 		}
-		this.scheduler.send(this, message);
+		Scheduler scheduler = this.scheduler;
+		if (scheduler.group.isAdaptiveAffinity()) {
+			onSentBy(CURRENT_ACTOR.get(), scheduler);
+		}
+		scheduler.send(this, message);
+	}
+
+	/**
+	 * Sends the message only if the mailbox has room for it, or if the overflow
+	 * policy is {@link OverflowPolicy#DROP_OLDEST}.
+	 * 
+	 * @return whether the message has been put into the mailbox
+	 */
+	public final boolean trySend(Object message) {
+		if (message == null) {
+			throw new NullPointerException();
+		}
+		if (stateRef.get() != ActorState.STARTED) {
+			return false;
+		}
+		return this.scheduler.trySend(this, message);
+	}
+
+	/**
+	 * Sends the message, waiting for room in the mailbox if it is full.
+	 * 
+	 * @return the future completed when the message has been put into the
+	 *         mailbox, or completed exceptionally with an
+	 *         {@link ActorStateException} if the actor is not started or stops
+	 *         before that
+	 */
+	public final CompletableFuture<Void> sendAsync(Object message) {
+		if (message == null) {
+			throw new NullPointerException();
+		}
+		ActorState state = stateRef.get();
+		if (state != ActorState.STARTED) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			future.completeExceptionally(new ActorStateException(this, state));
+			return future;
+		}
+		return this.scheduler.sendAsync(this, message);
 	}
 
 	public final void stop() {
@@ -111,6 +309,10 @@ public abstract class Actor implements Comparable<Actor> {
 		return stateRef.get() == ActorState.STARTED;
 	}
 
+	public final boolean isPassivated() {
+		return this.isPassivated;
+	}
+
 	public final void link(Actor actor) {
 		if (this == actor || this.isStopped() || actor.isStopped()) {
 			return;
@@ -158,6 +360,13 @@ public abstract class Actor implements Comparable<Actor> {
 		return scheduler.group;
 	}
 
+	/**
+	 * Returns the index of the scheduler which currently runs the actor.
+	 */
+	public final int getSchedulerIndex() {
+		return scheduler.index;
+	}
+
 	public final String getName() {
 		if (this.isStopped()) {
 			return null;
@@ -179,60 +388,113 @@ public abstract class Actor implements Comparable<Actor> {
 			failureHandler.accept(new ActorStateException(this, state));
 			return;
 		}
-		this.scheduler.execute(() -> {
-			if (this.isStopped()) {
-				failureHandler.accept(new ActorStoppedException(this));
-				return;
-			}
-			try {
-				command.run();
-			} catch (Exception ex) {
-				stop(ex);
-			}
-		});
+		this.scheduler.execute(this, command, failureHandler);
+	}
+
+	/**
+	 * Returns the instrument of the actor, or {@code null} if the actor is not
+	 * instrumented.
+	 */
+	public final ActorInstrument getInstrument() {
+		return this.instrument;
+	}
+
+	/**
+	 * Returns the estimated number of the messages in the mailbox.
+	 */
+	public final int getMailboxSize() {
+		return mailbox.size();
+	}
+
+	/**
+	 * Same as {@link #getMailboxSize()}, but stops counting at the limit, so
+	 * it is cheap to compare the mailboxes of actors.
+	 */
+	public final int getMailboxSize(int limit) {
+		return mailbox.size(limit);
+	}
+
+	/**
+	 * Returns the number of the messages saved by the actor because no receive
+	 * rule matched them.
+	 */
+	public final int getSavedMessagesSize() {
+		Stash savedMessages = this.savedMessages;
+		return savedMessages == null ? 0 : savedMessages.size();
+	}
+
+	/**
+	 * Returns the scheduler which currently runs the actor.
+	 */
+	final Scheduler scheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Called by the task handed to the executor.
+	 */
+	final void run(boolean isStarting) {
+		scheduler.run(this, isStarting);
+	}
+
+	final void onRun(boolean isStarting) {
+		if (isStarting) {
+			onStart();
+		}
+		onDrain();
 	}
 
 	final void onStop(Object reason) {
+		mailbox.close();
 		String name = nameRef.get();
 		if (name != null) {
 			nameRef.set(null);
-			scheduler.group.registry.computeIfPresent(name, (String nameKey, Actor actorValue) -> {
-				if (actorValue == this) {
-					return null;
-				} else {
-					return actorValue;
-				}
-			});
+			scheduler.group.registry.remove(name, this);
 		}
 
 		try {
 			postStop(reason);
 		} catch (Exception ex) {
 		}
+		if (this.instrument != null) {
+			this.instrument.onStop(reason);
+		}
 
+		SignalBatch[] batches = null;
 		DownMessage downMessage = null;
-		for (Actor actor : this.monitors) {
+		for (Actor actor : this.monitors.toArray()) {
 			actor.monitoredActors.remove(this);
-			if (downMessage == null) {
-				downMessage = new DownMessage(this, reason);
+			if (actor.stateRef.get() == ActorState.STARTED) {
+				if (downMessage == null) {
+					downMessage = new DownMessage(this, reason);
+				}
+				batches = addSignal(batches, actor, downMessage);
 			}
-			actor.send(downMessage);
 		}
 
 		ExitMessage exitMessage = null;
-		for (Actor actor : this.links) {
+		for (Actor actor : this.links.toArray()) {
 			actor.links.remove(this);
 			if (actor.isTrapStop) {
-				if (exitMessage == null) {
-					exitMessage = new ExitMessage(this, reason);
+				if (actor.stateRef.get() == ActorState.STARTED) {
+					if (exitMessage == null) {
+						exitMessage = new ExitMessage(this, reason);
+					}
+					batches = addSignal(batches, actor, exitMessage);
+				}
+			} else if (actor.stateRef.compareAndSet(ActorState.STARTED, ActorState.STOPPED)) {
+				batches = addSignal(batches, actor, new StopTask(actor, reason));
+			}
+		}
+		if (batches != null) {
+			for (SignalBatch batch : batches) {
+				if (batch != null) {
+					batch.dispatch();
 				}
-				actor.send(exitMessage);
-			} else {
-				actor.stop(reason);
 			}
 		}
 
-		for (Actor actor : this.monitoredActors) {
+		for (Actor actor : this.monitoredActors.toArray()) {
 			actor.monitors.remove(this);
 		}
 		this.savedMessages = null;
@@ -241,62 +503,414 @@ public abstract class Actor implements Comparable<Actor> {
 		this.monitoredActors.clear();
 	}
 
+	/**
+	 * Groups the signals by the scheduler of the target actor, the signals to
+	 * the actors of other groups are posted directly.
+	 */
+	private SignalBatch[] addSignal(SignalBatch[] batches, Actor actor, Object signal) {
+		Scheduler targetScheduler = actor.scheduler;
+		if (targetScheduler.group != scheduler.group) {
+			targetScheduler.post(actor, signal);
+			return batches;
+		}
+		if (batches == null) {
+			batches = new SignalBatch[scheduler.group.getSchedulersSize()];
+		}
+		SignalBatch batch = batches[targetScheduler.index];
+		if (batch == null) {
+			batch = new SignalBatch(targetScheduler);
+			batches[targetScheduler.index] = batch;
+		}
+		batch.add(actor, signal);
+		return batches;
+	}
+
 	final void onStart() {
 		stateRef.compareAndSet(ActorState.CREATED, ActorState.STARTED);
 		try {
+			onRecover();
 			preStart();
 		} catch (Exception ex) {
 			stop(ex);
 			return;
 		}
-		if (receive.afterHook != null) {
-			this.afterFuture = this.scheduler.after(this);
+		if (this.instrument != null) {
+			this.instrument.onStart();
 		}
+		startTimers();
 	}
 
-	final void onAfter() {
+	final void onAfter(AfterTask task) {
 		if (isStopped()) {
 			return;
 		}
+		if (task == idleTask) {
+			onIdle();
+			return;
+		}
+		if (task != afterTask) {
+			// left by a passivation
+			return;
+		}
+		if (afterTask.deadline - System.nanoTime() > 0) {
+			this.scheduler.after(afterTask);
+			return;
+		}
+		long startTime = this.instrument != null ? System.nanoTime() : 0L;
 		try {
 			receive.afterHook.run();
 		} catch (Exception ex) {
 			stop(ex);
 			return;
+		} finally {
+			if (this.instrument != null) {
+				this.instrument.onAfter(System.nanoTime() - startTime);
+			}
 		}
-		sendSavedMessages();
-		this.afterFuture = this.scheduler.after(this);
+		savedMessages.rewind();
+		this.afterTask.postpone();
+		this.scheduler.after(this.afterTask);
 	}
 
-	final void onReceive(Object message) {
-		if (isStopped()) {
+	private final void onIdle() {
+		if (idleTask.deadline - System.nanoTime() > 0) {
+			this.scheduler.after(idleTask);
+			return;
+		}
+		if (hasMessages() || savedMessages.size() > 0) {
+			idleTask.postpone();
+			this.scheduler.after(idleTask);
 			return;
 		}
+		Object state;
 		try {
-			for (ReceiveRule rule : receive.receiveRules) {
-				if (rule.matcher.test(message)) {
-					sendSavedMessages();
+			state = prePassivate();
+		} catch (Exception ex) {
+			stop(ex);
+			return;
+		}
+		this.passivatedState = state;
+		if (this.afterTask != null) {
+			this.afterTask.isCancelled = true;
+		}
+		this.receive = null;
+		this.savedMessages = null;
+		this.afterTask = null;
+		this.isPassivated = true;
+	}
 
-					if (this.afterFuture != null) {
-						this.afterFuture.cancel(false);
-						this.afterFuture = this.scheduler.after(this);
-					}
+	private final void activate() {
+		this.isPassivated = false;
+		Object state = this.passivatedState;
+		this.passivatedState = null;
+		try {
+			initReceive();
+			postActivate(state);
+		} catch (Exception ex) {
+			stop(ex);
+			return;
+		}
+		startTimers();
+	}
 
-					rule.receiver.accept(message);
-					return;
+	private final void initReceive() {
+		Receive receive = createReceive();
+		if (receive == null) {
+			throw new NullPointerException();
+		}
+		this.receive = receive;
+		this.savedMessages = new Stash();
+		if (receive.afterHook != null) {
+			this.afterTask = new AfterTask(this, receive.afterTimeUnit.toNanos(receive.afterTime));
+		}
+	}
+
+	private final void startTimers() {
+		if (this.afterTask != null) {
+			this.afterTask.postpone();
+			this.scheduler.after(this.afterTask);
+		}
+		if (this.idleTask != null) {
+			this.idleTask.postpone();
+			this.scheduler.after(this.idleTask);
+		}
+	}
+
+	final void onDrain() {
+		boolean isAdaptiveAffinity = scheduler.group.isAdaptiveAffinity();
+		Actor previousActor = null;
+		if (isAdaptiveAffinity) {
+			previousActor = CURRENT_ACTOR.get();
+			CURRENT_ACTOR.set(this);
+		}
+		try {
+			if (isPassivated && !isStopped()) {
+				activate();
+			}
+			int throughput = scheduler.group.getThroughput();
+			int count = 0;
+			int scans = 0;
+			while (count < throughput) {
+				if (isPassivated) {
+					// passivated by its idle timeout, the next run activates it
+					break;
+				}
+				Object message = pollLanes();
+				if (message != null) {
+					onReceiveAny(message);
+					count++;
+					continue;
+				}
+				if (hasSavedMessagesToScan()) {
+					boolean isReceived;
+					if (this.instrument == null) {
+						isReceived = onReceiveSaved();
+					} else {
+						long startTime = System.nanoTime();
+						isReceived = onReceiveSaved();
+						this.instrument.onReceive(System.nanoTime() - startTime);
+					}
+					// a saved message which is still unmatched only counts against
+					// the scans, the next run goes on from it
+					if (isReceived) {
+						count++;
+					} else if (++scans == SAVED_SCANS_LIMIT) {
+						break;
+					}
+					continue;
+				}
+				message = mailbox.poll();
+				if (message == null) {
+					break;
 				}
+				onReceiveAny(message);
+				count++;
+			}
+			onDrained();
+		} finally {
+			if (isAdaptiveAffinity) {
+				CURRENT_ACTOR.set(previousActor);
+			}
+			Scheduler migrationTarget = this.migrationTarget;
+			if (migrationTarget != null) {
+				// moves only between two runs, so the actor is never run by two schedulers
+				this.migrationTarget = null;
+				this.scheduler = migrationTarget;
+				// a passivated actor has no timers, they are started by its activation
+				if (!isStopped() && !isPassivated) {
+					moveTimers();
+				}
+			}
+			if (hasMessages() || hasSavedMessagesToScan()) {
+				scheduler.reschedule(this);
+			} else {
+				scheduledRef.set(false);
+				if (hasMessages()) {
+					scheduler.schedule(this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves the timeouts of a migrated actor to the timing wheel of its new
+	 * scheduler, so they fire on the thread which now runs it.
+	 */
+	private final void moveTimers() {
+		if (this.afterTask != null) {
+			this.afterTask = this.afterTask.moveOut();
+			this.scheduler.after(this.afterTask);
+		}
+		if (this.idleTask != null) {
+			this.idleTask = this.idleTask.moveOut();
+			this.scheduler.after(this.idleTask);
+		}
+	}
+
+	/**
+	 * Called before {@link #preStart()}, for the actors which recover their
+	 * state.
+	 */
+	void onRecover() throws Exception {
+	}
+
+	/**
+	 * Called after a run of the actor, when every polled message has been
+	 * received or saved.
+	 */
+	void onDrained() {
+	}
+
+	private final void onReceiveAny(Object message) {
+		if (message instanceof SystemTask) {
+			((SystemTask) message).run();
+		} else if (this.instrument == null) {
+			onReceive(message);
+		} else {
+			long startTime = System.nanoTime();
+			onReceive(message);
+			this.instrument.onReceive(System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Returns the system lane, created by the first system message since most
+	 * actors never receive one.
+	 */
+	final LinkedMailbox systemLane() {
+		LinkedMailbox systemLane = this.systemLane;
+		if (systemLane == null) {
+			systemLane = new LinkedMailbox();
+			if (!SYSTEM_LANE_UPDATER.compareAndSet(this, null, systemLane)) {
+				systemLane = this.systemLane;
+			}
+		}
+		return systemLane;
+	}
+
+	/**
+	 * Polls the system lane, then the priority lane.
+	 */
+	private final Object pollLanes() {
+		LinkedMailbox systemLane = this.systemLane;
+		if (systemLane != null) {
+			Object message = systemLane.poll();
+			if (message != null) {
+				return message;
 			}
+		}
+		return priorityLane == null ? null : priorityLane.poll();
+	}
+
+	private final boolean hasLaneMessages() {
+		LinkedMailbox systemLane = this.systemLane;
+		return (systemLane != null && !systemLane.isEmpty()) || (priorityLane != null && !priorityLane.isEmpty());
+	}
+
+	private final boolean hasMessages() {
+		return hasLaneMessages() || !mailbox.isEmpty();
+	}
+
+	/**
+	 * Counts the sends in a row from an actor of another scheduler of the group,
+	 * the counters are racy since they are only a hint. Of two actors sending
+	 * to each other only one moves, decided by their identity hash codes.
+	 */
+	private final void onSentBy(Actor sender, Scheduler scheduler) {
+		if (sender == null || sender == this) {
+			return;
+		}
+		Scheduler senderScheduler = sender.scheduler;
+		if (senderScheduler == scheduler || senderScheduler.group != scheduler.group
+				|| System.identityHashCode(this) <= System.identityHashCode(sender)) {
+			return;
+		}
+		if (peer != sender) {
+			peer = sender;
+			peerSendsSize = 1;
+		} else if (++peerSendsSize >= MIGRATION_THRESHOLD) {
+			peer = null;
+			peerSendsSize = 0;
+			migrationTarget = senderScheduler;
+		}
+	}
+
+	final void onReceive(Object message) {
+		if (isStopped()) {
+			return;
+		}
+		ReceiveRule rule;
+		try {
+			rule = receive.match(message);
 		} catch (Exception ex) {
 			stop(ex);
 			return;
 		}
-		savedMessages.offer(message);
+		if (rule == null) {
+			savedMessages.add(message);
+		} else {
+			accept(rule, message);
+		}
+	}
+
+	/**
+	 * Matches the next saved message again.
+	 * 
+	 * @return whether the message is no longer saved
+	 */
+	private final boolean onReceiveSaved() {
+		Object message = savedMessages.next();
+		if (isStopped()) {
+			return true;
+		}
+		ReceiveRule rule;
+		try {
+			rule = receive.match(message);
+		} catch (Exception ex) {
+			stop(ex);
+			return true;
+		}
+		if (rule == null) {
+			return false;
+		}
+		savedMessages.removePrevious();
+		accept(rule, message);
+		return true;
 	}
 
-	private final void sendSavedMessages() {
-		Object savedMessage;
-		while ((savedMessage = savedMessages.poll()) != null) {
-			send(savedMessage);
+	private final void accept(ReceiveRule rule, Object message) {
+		savedMessages.rewind();
+		try {
+			if (this.afterTask != null) {
+				this.afterTask.postpone();
+			}
+			if (this.idleTask != null) {
+				this.idleTask.postpone();
+			}
+
+			if (rule.batchReceiver == null) {
+				rule.receiver.accept(message);
+			} else {
+				rule.batchReceiver.accept(collectBatch(rule, message));
+			}
+		} catch (Exception ex) {
+			stop(ex);
+		}
+	}
+
+	/**
+	 * Takes the messages following the accepted one from the mailbox while they
+	 * are matched by the same rule. Nothing is taken if there are saved
+	 * messages, since they may be matched before the following messages, and
+	 * the batch ends as soon as a message arrives in the system or priority
+	 * lane.
+	 */
+	private final List<Object> collectBatch(ReceiveRule rule, Object message) {
+		List<Object> batch = new ArrayList<>(Math.min(rule.maxBatch, 16));
+		batch.add(message);
+		if (savedMessages.size() > 0) {
+			return batch;
+		}
+		while (batch.size() < rule.maxBatch && !hasLaneMessages()) {
+			Object nextMessage = mailbox.peek();
+			if (nextMessage == null || nextMessage instanceof SystemTask) {
+				break;
+			}
+			try {
+				if (receive.match(nextMessage) != rule) {
+					break;
+				}
+			} catch (Exception ex) {
+				// left to be matched again when it is received
+				break;
+			}
+			mailbox.poll();
+			batch.add(nextMessage);
 		}
+		return batch;
+	}
+
+	private final boolean hasSavedMessagesToScan() {
+		return savedMessages != null && savedMessages.hasNext();
 	}
 }
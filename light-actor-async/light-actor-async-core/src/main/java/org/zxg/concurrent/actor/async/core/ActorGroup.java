@@ -16,16 +16,18 @@
  */
 package org.zxg.concurrent.actor.async.core;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
-import org.zxg.concurrent.actor.async.core.exception.ActorException;
 import org.zxg.concurrent.actor.async.core.exception.ActorRegisteredException;
 import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
 import org.zxg.concurrent.actor.async.core.exception.InvalidActorNameException;
 import org.zxg.concurrent.actor.async.core.exception.RepeatedActorNameException;
+import org.zxg.concurrent.actor.async.core.metrics.Instrumentation;
 
 /**
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
@@ -35,7 +37,10 @@ public class ActorGroup {
 	private Scheduler[] schedulers;
 	private AtomicInteger schedulerIndex = new AtomicInteger();
 	private int schedulersSize;
-	Map<String, Actor> registry;
+	private volatile int throughput = 32;
+	private volatile Instrumentation instrumentation;
+	private volatile boolean isAdaptiveAffinity;
+	Registry registry;
 
 	public ActorGroup(Iterable<? extends ScheduledExecutorService> executors, int executorsSize) {
 		if (executorsSize <= 0) {
@@ -44,71 +49,138 @@ public class ActorGroup {
 		this.schedulers = new Scheduler[executorsSize];
 		int index = 0;
 		for (ScheduledExecutorService executor : executors) {
-			schedulers[index++] = new Scheduler(this, executor);
+			schedulers[index] = new Scheduler(this, index, executor);
+			index++;
 		}
 		if (index < executorsSize) {
 			throw new IllegalArgumentException(
 					"Argument \"executorsSize\" is not equal to the size of argument \"executors\".");
 		}
 		this.schedulersSize = index;
-		this.registry = new ConcurrentHashMap<>();
+		this.registry = new Registry();
 	}
 
-	public final void register(String name, Actor actor)
-			throws RepeatedActorNameException, ActorRegisteredException, ActorStoppedException {
-		if (actor == null) {
+	/**
+	 * Creates a group whose actors are all run by a work-stealing pool, so a
+	 * runnable actor may be picked up by any idle worker. Each actor is still
+	 * run by one worker at a time. The timeouts of the actors are kept by the
+	 * timer executor and delivered to the pool.
+	 */
+	public ActorGroup(ForkJoinPool pool, ScheduledExecutorService timerExecutor) {
+		if (pool == null || timerExecutor == null) {
 			throw new NullPointerException();
 		}
-		final Ref<ActorException> exRef = new Ref<>();
-		Actor oldActor = registry.computeIfAbsent(name, (String nameKey) -> {
-			if (!actor.isStopped()) {
-				if (actor.nameRef.compareAndSet(null, nameKey)) {
-					if (!actor.isStopped()) {
-						return actor;
-					} else {
-						exRef.value = new ActorStoppedException(actor);
-					}
-				} else {
-					exRef.value = new ActorRegisteredException();
-				}
-			} else {
-				exRef.value = new ActorStoppedException(actor);
-			}
-			return null;
-		});
-		if (exRef.value != null) {
-			throw exRef.value;
-		} else if (oldActor != actor) {
-			throw new RepeatedActorNameException();
+		if (!pool.getAsyncMode()) {
+			throw new IllegalArgumentException("Argument \"pool\" should be in asynchronous mode.");
 		}
+		this.schedulers = new Scheduler[] { new Scheduler(this, 0, pool, timerExecutor) };
+		this.schedulersSize = 1;
+		this.registry = new Registry();
+	}
+
+	public final void register(String name, Actor actor)
+			throws RepeatedActorNameException, ActorRegisteredException, ActorStoppedException {
+		registry.register(name, actor);
 	}
 
 	public final void unregister(String name) throws ActorStoppedException, InvalidActorNameException {
-		final Ref<ActorException> exRef = new Ref<>();
-		final Ref<Boolean> existsRef = new Ref<>(false);
-		registry.computeIfPresent(name, (String nameKey, Actor actorValue) -> {
-			existsRef.value = true;
-			if (!actorValue.isStopped()) {
-				actorValue.nameRef.set(null);
-				return null;
-			} else {
-				exRef.value = new ActorStoppedException(actorValue);
-			}
-			return actorValue;
-		});
-		if (exRef.value != null) {
-			throw exRef.value;
-		} else if (!existsRef.value) {
-			throw new InvalidActorNameException();
-		}
+		registry.unregister(name);
 	}
 
 	public final Actor whereis(String name) {
-		return registry.get(name);
+		return registry.whereis(name);
+	}
+
+	/**
+	 * Returns the actor registered with the name, or creates, starts and
+	 * registers one if there is none. Of the calls racing for the same name,
+	 * one registers its actor and the others stop theirs and return it.
+	 * 
+	 * @param factory
+	 *            creates a new actor which is not started, called with the
+	 *            name without holding any lock, so it may be called more than
+	 *            once for a name
+	 */
+	public final Actor whereisOrCreate(String name, Function<String, ? extends Actor> factory)
+			throws ActorRegisteredException {
+		return registry.whereisOrCreate(name, factory);
 	}
 
 	public final Iterable<String> registered() {
-		return registry.keySet();
+		return registry.registered();
+	}
+
+	/**
+	 * Returns the registered names directly under the path, for example
+	 * {@code "/sessions/1"} is a name under {@code "/sessions"}. Only the
+	 * parent of a name indexes it, so {@code "/sessions/1/user"} is not
+	 * returned for {@code "/sessions"}, even when {@code "/sessions/1"} is not
+	 * registered.
+	 */
+	public final Iterable<String> registered(String path) {
+		return registry.children(path);
+	}
+
+	public final void setThroughput(int throughput) {
+		if (throughput <= 0) {
+			throw new IllegalArgumentException("Argument \"throughput\" should be a positive number.");
+		}
+		this.throughput = throughput;
+	}
+
+	public final int getThroughput() {
+		return this.throughput;
+	}
+
+	/**
+	 * Runs the command once after the delay on a timer executor of the group,
+	 * the command should be short since it may share the thread with actors.
+	 */
+	public final ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		if (command == null || unit == null) {
+			throw new NullPointerException();
+		}
+		return nextScheduler().schedule(command, delay, unit);
+	}
+
+	/**
+	 * Sets the instrumentation of the group, only the actors created after it
+	 * is set are instrumented. Passing {@code null} disables the
+	 * instrumentation.
+	 */
+	public final void setInstrumentation(Instrumentation instrumentation) {
+		if (instrumentation != null) {
+			instrumentation.attach(this, schedulersSize);
+		}
+		this.instrumentation = instrumentation;
+	}
+
+	public final Instrumentation getInstrumentation() {
+		return this.instrumentation;
+	}
+
+	public final int getSchedulersSize() {
+		return this.schedulersSize;
+	}
+
+	/**
+	 * Enables or disables moving an actor to the scheduler of an actor which
+	 * keeps sending messages to it, so that chatty actors end up run by the
+	 * same scheduler.
+	 */
+	public final void setAdaptiveAffinity(boolean adaptiveAffinity) {
+		this.isAdaptiveAffinity = adaptiveAffinity;
+	}
+
+	public final boolean isAdaptiveAffinity() {
+		return this.isAdaptiveAffinity;
+	}
+
+	final Scheduler getScheduler(int index) {
+		if (index < 0 || index >= schedulersSize) {
+			throw new IllegalArgumentException("Argument \"schedulerIndex\" is out of range.");
+		}
+		return schedulers[index];
 	}
 
 	final Scheduler nextScheduler() {
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Concurrent set of actors compared by identity. Up to two actors are kept
+ * inline, a hash set is only allocated for the third one, which also compares
+ * by identity since {@link Actor#equals(Object)} is final.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class ActorSet {
+
+	private static final Actor[] EMPTY = new Actor[0];
+	private static final AtomicReferenceFieldUpdater<ActorSet, Object> STATE_UPDATER = AtomicReferenceFieldUpdater
+			.newUpdater(ActorSet.class, Object.class, "state");
+
+	/**
+	 * {@code null}, an {@link Actor}, an immutable pair of actors or a
+	 * {@link Set} of actors.
+	 */
+	private volatile Object state;
+
+	public boolean add(Actor actor) {
+		while (true) {
+			Object state = this.state;
+			if (state == null) {
+				if (STATE_UPDATER.compareAndSet(this, null, actor)) {
+					return true;
+				}
+			} else if (state instanceof Actor) {
+				if (state == actor) {
+					return false;
+				}
+				if (STATE_UPDATER.compareAndSet(this, state, new Actor[] { (Actor) state, actor })) {
+					return true;
+				}
+			} else if (state instanceof Actor[]) {
+				Actor[] pair = (Actor[]) state;
+				if (pair[0] == actor || pair[1] == actor) {
+					return false;
+				}
+				Set<Actor> set = ConcurrentHashMap.newKeySet();
+				set.add(pair[0]);
+				set.add(pair[1]);
+				set.add(actor);
+				if (STATE_UPDATER.compareAndSet(this, state, set)) {
+					return true;
+				}
+			} else {
+				return asSet(state).add(actor);
+			}
+		}
+	}
+
+	public boolean remove(Actor actor) {
+		while (true) {
+			Object state = this.state;
+			if (state == null) {
+				return false;
+			} else if (state instanceof Actor) {
+				if (state != actor) {
+					return false;
+				}
+				if (STATE_UPDATER.compareAndSet(this, state, null)) {
+					return true;
+				}
+			} else if (state instanceof Actor[]) {
+				Actor[] pair = (Actor[]) state;
+				Actor other;
+				if (pair[0] == actor) {
+					other = pair[1];
+				} else if (pair[1] == actor) {
+					other = pair[0];
+				} else {
+					return false;
+				}
+				if (STATE_UPDATER.compareAndSet(this, state, other)) {
+					return true;
+				}
+			} else {
+				return asSet(state).remove(actor);
+			}
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the actors in the set.
+	 */
+	public Actor[] toArray() {
+		Object state = this.state;
+		if (state == null) {
+			return EMPTY;
+		} else if (state instanceof Actor) {
+			return new Actor[] { (Actor) state };
+		} else if (state instanceof Actor[]) {
+			return ((Actor[]) state).clone();
+		} else {
+			return asSet(state).toArray(EMPTY);
+		}
+	}
+
+	public void clear() {
+		this.state = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Set<Actor> asSet(Object state) {
+		return (Set<Actor>) state;
+	}
+}
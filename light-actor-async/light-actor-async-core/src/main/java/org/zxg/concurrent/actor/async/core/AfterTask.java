@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+/**
+ * Receive timeout or idle timeout of an actor. It stays in the timing wheel of
+ * the scheduler while the actor is alive, and postponing it only moves the
+ * deadline.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class AfterTask extends SystemTask {
+
+	Actor actor;
+	private long delay;
+	volatile long deadline;
+	/**
+	 * Set when the actor is passivated or moves to another scheduler, so the
+	 * wheel drops the timeout.
+	 */
+	volatile boolean isCancelled;
+	long remainingRounds;
+	AfterTask next;
+
+	public AfterTask(Actor actor, long delay) {
+		this.actor = actor;
+		this.delay = delay;
+	}
+
+	/**
+	 * Cancels this timeout and returns a copy with the same deadline, to be
+	 * added to the timing wheel of another scheduler.
+	 */
+	public AfterTask moveOut() {
+		this.isCancelled = true;
+		AfterTask task = new AfterTask(actor, delay);
+		task.deadline = this.deadline;
+		return task;
+	}
+
+	public void postpone() {
+		this.deadline = System.nanoTime() + this.delay;
+	}
+
+	@Override
+	public void run() {
+		this.actor.onAfter(this);
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
+import org.zxg.concurrent.actor.async.core.exception.MailboxFullException;
+
+/**
+ * Mailbox holding at most a fixed number of messages, the system tasks are not
+ * counted.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class BoundedMailbox extends Mailbox {
+
+	private static final class Waiter {
+
+		Object message;
+		CompletableFuture<Void> future;
+
+		Waiter(Object message, CompletableFuture<Void> future) {
+			this.message = message;
+			this.future = future;
+		}
+	}
+
+	private Actor actor;
+	private int capacity;
+	private OverflowPolicy overflowPolicy;
+	private ArrayDeque<Object> messages;
+	private int messagesSize;
+	private ArrayDeque<Waiter> waiters;
+	private boolean isClosed;
+
+	public BoundedMailbox(Actor actor, int capacity, OverflowPolicy overflowPolicy) {
+		this.actor = actor;
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+		this.messages = new ArrayDeque<>();
+	}
+
+	@Override
+	public synchronized void offer(Object message) {
+		messages.offer(message);
+		if (!(message instanceof SystemTask)) {
+			messagesSize++;
+		}
+	}
+
+	@Override
+	public boolean put(Object message) {
+		synchronized (this) {
+			if (messagesSize < capacity) {
+				offer(message);
+				return true;
+			}
+			switch (overflowPolicy) {
+			case DROP_OLDEST:
+				removeOldest();
+				offer(message);
+				return true;
+			case REJECT:
+				break;
+			case AWAIT:
+				if (!isClosed) {
+					addWaiter(message, null);
+				}
+				return false;
+			default:
+				return false;
+			}
+		}
+		throw new MailboxFullException(actor);
+	}
+
+	@Override
+	public synchronized boolean tryPut(Object message) {
+		if (messagesSize < capacity) {
+			offer(message);
+			return true;
+		}
+		if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+			removeOldest();
+			offer(message);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean putAsync(Object message, CompletableFuture<Void> future) {
+		synchronized (this) {
+			if (!isClosed) {
+				if (messagesSize < capacity) {
+					offer(message);
+					return true;
+				}
+				if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+					removeOldest();
+					offer(message);
+					return true;
+				}
+				addWaiter(message, future);
+				return false;
+			}
+		}
+		future.completeExceptionally(new ActorStoppedException(actor));
+		return false;
+	}
+
+	@Override
+	public Object poll() {
+		Object message;
+		Waiter waiter;
+		synchronized (this) {
+			message = messages.poll();
+			if (message == null || message instanceof SystemTask) {
+				return message;
+			}
+			waiter = waiters == null || actor.isStopped() ? null : waiters.poll();
+			if (waiter == null) {
+				messagesSize--;
+				return message;
+			}
+			messages.offer(waiter.message);
+		}
+		// counted once it is in the mailbox
+		Scheduler.onSend(actor);
+		if (waiter.future != null) {
+			waiter.future.complete(null);
+		}
+		return message;
+	}
+
+	@Override
+	public synchronized Object peek() {
+		return messages.peek();
+	}
+
+	@Override
+	public synchronized boolean isEmpty() {
+		return messages.isEmpty();
+	}
+
+	@Override
+	public synchronized int size() {
+		return messages.size();
+	}
+
+	@Override
+	public synchronized int size(int limit) {
+		return Math.min(messages.size(), limit);
+	}
+
+	@Override
+	public void close() {
+		ArrayDeque<Waiter> waiters;
+		synchronized (this) {
+			isClosed = true;
+			waiters = this.waiters;
+			this.waiters = null;
+		}
+		if (waiters != null) {
+			ActorStoppedException ex = new ActorStoppedException(actor);
+			for (Waiter waiter : waiters) {
+				if (waiter.future != null) {
+					waiter.future.completeExceptionally(ex);
+				}
+			}
+		}
+	}
+
+	private void removeOldest() {
+		Iterator<Object> iterator = messages.iterator();
+		while (iterator.hasNext()) {
+			if (!(iterator.next() instanceof SystemTask)) {
+				iterator.remove();
+				messagesSize--;
+				return;
+			}
+		}
+	}
+
+	private void addWaiter(Object message, CompletableFuture<Void> future) {
+		if (waiters == null) {
+			waiters = new ArrayDeque<>();
+		}
+		waiters.offer(new Waiter(message, future));
+	}
+}
@@ -24,7 +24,7 @@ public final class DownMessage {
 	public final Actor from;
 	public final Object reason;
 
-	DownMessage(Actor from, Object reason) {
+	public DownMessage(Actor from, Object reason) {
 		this.from = from;
 		this.reason = reason;
 	}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * Actor whose messages are journaled before they are enqueued, and whose state
+ * is saved in snapshots, so that it is recovered when an actor with the same
+ * persistence id is created after a restart. The state is recovered from the
+ * latest snapshot, then the messages journaled after it are received again
+ * before any new message.
+ * <p>
+ * The state should change only with the received messages, since the
+ * messages received after the latest snapshot are received once more on
+ * recovery. Only the messages sent to the actor are journaled, not the
+ * notifications nor the commands passed to {@link #execute(Runnable)}. At most
+ * one actor of a persistence id should be alive at a time.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public abstract class DurableActor extends Actor {
+
+	private Journal journal;
+	private String persistenceId;
+	private JournaledMailbox journaledMailbox;
+	private int snapshotInterval;
+	private long snapshotSequence;
+	private ByteBuffer recoveredSnapshot;
+
+	protected DurableActor(ActorGroup group, Journal journal, String persistenceId) {
+		super(group);
+		init(group, journal, persistenceId);
+	}
+
+	protected DurableActor(ActorGroup group, int schedulerIndex, Journal journal, String persistenceId) {
+		super(group, schedulerIndex);
+		init(group, journal, persistenceId);
+	}
+
+	private void init(ActorGroup group, Journal journal, String persistenceId) {
+		if (journal == null || persistenceId == null) {
+			throw new NullPointerException();
+		}
+		if (journal.group != group) {
+			throw new IllegalArgumentException("The journal belongs to another actor group.");
+		}
+		if (persistenceId.getBytes(StandardCharsets.UTF_8).length > Journal.MAX_PERSISTENCE_ID_LENGTH) {
+			throw new IllegalArgumentException("Argument \"persistenceId\" should not be longer than "
+					+ Journal.MAX_PERSISTENCE_ID_LENGTH + " bytes in UTF-8.");
+		}
+		int snapshotInterval = snapshotInterval();
+		if (snapshotInterval <= 0) {
+			throw new IllegalArgumentException("The snapshot interval should be a positive number.");
+		}
+		this.journal = journal;
+		this.persistenceId = persistenceId;
+		this.snapshotInterval = snapshotInterval;
+		Journal.Recovery recovery = journal.recover(persistenceId);
+		this.snapshotSequence = recovery.snapshotSequence;
+		this.recoveredSnapshot = recovery.snapshot;
+		this.journaledMailbox = new JournaledMailbox(this, journal, persistenceId, recovery);
+		this.mailbox = this.journaledMailbox;
+	}
+
+	/**
+	 * Returns the state saved in a snapshot. {@code null} means that the actor
+	 * does not take snapshots, so all its messages are received again on
+	 * recovery.
+	 */
+	protected Object snapshotState() throws Exception {
+		return null;
+	}
+
+	/**
+	 * Called before {@link #preStart()} with the state of the latest snapshot,
+	 * if there is one.
+	 */
+	protected void recoverState(Object state) throws Exception {
+	}
+
+	/**
+	 * Returns how many messages are received between two snapshots, called once
+	 * when the actor is created. A snapshot is only taken when there are no
+	 * saved messages.
+	 */
+	protected int snapshotInterval() {
+		return 1000;
+	}
+
+	public final String getPersistenceId() {
+		return persistenceId;
+	}
+
+	@Override
+	protected final int mailboxCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	protected final Predicate<Object> priorityMatcher() {
+		return null;
+	}
+
+	@Override
+	final void onRecover() throws Exception {
+		ByteBuffer snapshot = this.recoveredSnapshot;
+		if (snapshot != null) {
+			this.recoveredSnapshot = null;
+			recoverState(journal.decode(snapshot));
+		}
+	}
+
+	@Override
+	final void onDrained() {
+		long receivedSequence = journaledMailbox.receivedSequence;
+		if (receivedSequence - snapshotSequence < snapshotInterval || getSavedMessagesSize() > 0 || isStopped()) {
+			return;
+		}
+		try {
+			Object state = snapshotState();
+			if (state != null) {
+				journaledMailbox.snapshot(state);
+			}
+		} catch (Exception ex) {
+			stop(ex);
+			return;
+		}
+		snapshotSequence = receivedSequence;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.function.Consumer;
+
+import org.zxg.concurrent.actor.async.core.exception.ActorStateException;
+import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class ExecuteTask extends SystemTask {
+
+	private Actor actor;
+	private Runnable command;
+	private Consumer<ActorStateException> failureHandler;
+
+	public ExecuteTask(Actor actor, Runnable command, Consumer<ActorStateException> failureHandler) {
+		this.actor = actor;
+		this.command = command;
+		this.failureHandler = failureHandler;
+	}
+
+	@Override
+	public void run() {
+		if (this.actor.isStopped()) {
+			this.failureHandler.accept(new ActorStoppedException(this.actor));
+			return;
+		}
+		try {
+			this.command.run();
+		} catch (Exception ex) {
+			this.actor.stop(ex);
+		}
+	}
+}
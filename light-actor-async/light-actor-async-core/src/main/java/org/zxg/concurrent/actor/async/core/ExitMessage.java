@@ -24,7 +24,7 @@ public final class ExitMessage {
 	public final Actor from;
 	public final Object reason;
 
-	ExitMessage(Actor from, Object reason) {
+	public ExitMessage(Actor from, Object reason) {
 		this.from = from;
 		this.reason = reason;
 	}
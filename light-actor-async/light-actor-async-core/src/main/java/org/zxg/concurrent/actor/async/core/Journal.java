@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import org.zxg.concurrent.actor.async.core.codec.ByteBufferInput;
+import org.zxg.concurrent.actor.async.core.codec.CodecRegistry;
+import org.zxg.concurrent.actor.async.core.exception.CodecException;
+import org.zxg.concurrent.actor.async.core.exception.JournalException;
+
+/**
+ * Append-only log of the messages and the snapshots of the durable actors of
+ * a group, kept in a directory. Every scheduler of the group writes its own
+ * segments, in the sub directory named after its index, and the records of an
+ * actor are ordered by their sequence numbers when they are replayed.
+ * <p>
+ * Opening a journal reads all its segments and keeps, for every persistence
+ * id, the latest snapshot and the messages following it, until the durable
+ * actor with that id is created. The messages and the states are encoded by
+ * the codec registry of the journal straight into the mapped segments, and
+ * decoded from them when they are replayed.
+ * <p>
+ * A segment whose records all precede the latest snapshots of their actors is
+ * deleted, when the journal is opened and once a snapshot is on the disk, so
+ * the journal only grows with the records of the actors which never take
+ * snapshots. The segments are forced to the disk by a dedicated thread of the
+ * journal, never by the threads of the actors.
+ * 
+ * @see DurableActor
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class Journal implements AutoCloseable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+	/**
+	 * The largest length of a persistence id in UTF-8, which is written as an
+	 * unsigned short.
+	 */
+	public static final int MAX_PERSISTENCE_ID_LENGTH = 0xFFFF;
+
+	static final byte MESSAGE = 1;
+	static final byte SNAPSHOT = 2;
+
+	/**
+	 * What a durable actor recovers from the journal.
+	 */
+	static final class Recovery {
+
+		long lastSequence;
+		long snapshotSequence;
+		ByteBuffer snapshot;
+		TreeMap<Long, ByteBuffer> messages = new TreeMap<>();
+	}
+
+	/**
+	 * The latest sequence numbers of the records of every persistence id in a
+	 * segment, which tell whether the segment is still needed.
+	 */
+	static final class Segment {
+
+		final Path path;
+		/**
+		 * The latest message and snapshot sequence numbers by persistence id.
+		 */
+		private final Map<String, long[]> sequences = new HashMap<>();
+
+		Segment(Path path) {
+			this.path = path;
+		}
+
+		void add(byte kind, String persistenceId, long sequence) {
+			long[] latest = sequences.get(persistenceId);
+			if (latest == null) {
+				latest = new long[] { -1L, -1L };
+				sequences.put(persistenceId, latest);
+			}
+			int index = kind == SNAPSHOT ? 1 : 0;
+			latest[index] = Math.max(latest[index], sequence);
+		}
+	}
+
+	final ActorGroup group;
+	final CodecRegistry registry;
+	final int segmentSize;
+	final ExecutorService flusher;
+	private JournalWriter[] writers;
+	private Map<String, Recovery> recoveries = new HashMap<>();
+	/**
+	 * The sequence numbers of the latest snapshots on the disk.
+	 */
+	private ConcurrentMap<String, Long> snapshotSequences = new ConcurrentHashMap<>();
+
+	public Journal(ActorGroup group, Path directory) throws IOException {
+		this(group, directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Uses a registry of the built-in codecs only, without the Java
+	 * serialization.
+	 */
+	public Journal(ActorGroup group, Path directory, int segmentSize) throws IOException {
+		this(group, directory, segmentSize, new CodecRegistry());
+	}
+
+	/**
+	 * @param registry
+	 *            the codecs of the messages and the states, which should
+	 *            register the same classes with the same ids every time the
+	 *            journal is opened
+	 */
+	public Journal(ActorGroup group, Path directory, int segmentSize, CodecRegistry registry) throws IOException {
+		if (segmentSize <= JournalWriter.HEADER_SIZE) {
+			throw new IllegalArgumentException("Argument \"segmentSize\" is too small.");
+		}
+		this.group = group;
+		this.registry = registry;
+		this.segmentSize = segmentSize;
+		Files.createDirectories(directory);
+		Map<Path, List<Segment>> segmentsMap = new HashMap<>();
+		Map<Path, Long> nextSegmentIndexes = new HashMap<>();
+		try (DirectoryStream<Path> writerDirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+			for (Path writerDirectory : writerDirectories) {
+				List<Path> paths = segments(writerDirectory);
+				List<Segment> segments = new ArrayList<>(paths.size());
+				for (Path path : paths) {
+					segments.add(load(path));
+				}
+				segmentsMap.put(writerDirectory, segments);
+				// taken before the deletion, so a segment name is never reused
+				nextSegmentIndexes.put(writerDirectory,
+						paths.isEmpty() ? 0L : segmentIndex(paths.get(paths.size() - 1)) + 1);
+			}
+		}
+		for (Map.Entry<String, Recovery> entry : recoveries.entrySet()) {
+			if (entry.getValue().snapshot != null) {
+				snapshotSequences.put(entry.getKey(), entry.getValue().snapshotSequence);
+			}
+		}
+		for (List<Segment> segments : segmentsMap.values()) {
+			segments.removeAll(compact(segments));
+		}
+		this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "journal-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.writers = new JournalWriter[group.getSchedulersSize()];
+		for (int index = 0; index < writers.length; index++) {
+			Path writerDirectory = directory.resolve(Integer.toString(index));
+			Files.createDirectories(writerDirectory);
+			List<Segment> segments = segmentsMap.get(writerDirectory);
+			Long nextSegmentIndex = nextSegmentIndexes.get(writerDirectory);
+			writers[index] = new JournalWriter(this, writerDirectory, nextSegmentIndex == null ? 0L : nextSegmentIndex,
+					segments == null ? new ArrayList<>() : segments);
+		}
+	}
+
+	/**
+	 * Returns the future completed when the records appended so far are on the
+	 * disk. The journal flushes by itself after every batch of appends, so
+	 * this is only needed to wait for that.
+	 */
+	public CompletableFuture<Void> flush() {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[writers.length];
+		for (int index = 0; index < writers.length; index++) {
+			futures[index] = writers[index].flush();
+		}
+		return CompletableFuture.allOf(futures);
+	}
+
+	/**
+	 * Forces the records to the disk, the durable actors can not receive
+	 * messages any more.
+	 */
+	@Override
+	public void close() {
+		for (JournalWriter writer : writers) {
+			writer.close();
+		}
+		flusher.shutdown();
+	}
+
+	JournalWriter writer(int schedulerIndex) {
+		return writers[schedulerIndex];
+	}
+
+	/**
+	 * Takes what was journaled for the persistence id before the journal was
+	 * opened.
+	 */
+	synchronized Recovery recover(String persistenceId) {
+		Recovery recovery = recoveries.remove(persistenceId);
+		return recovery == null ? new Recovery() : recovery;
+	}
+
+	/**
+	 * Called on the flusher once the snapshots are on the disk, deletes the
+	 * segments which are no longer needed.
+	 */
+	void onSnapshots(Map<String, Long> snapshots) {
+		for (Map.Entry<String, Long> snapshot : snapshots.entrySet()) {
+			snapshotSequences.merge(snapshot.getKey(), snapshot.getValue(), Math::max);
+		}
+		for (JournalWriter writer : writers) {
+			writer.compact();
+		}
+	}
+
+	/**
+	 * Deletes the segments whose records all precede the latest snapshots on
+	 * the disk.
+	 * 
+	 * @return the deleted segments
+	 */
+	List<Segment> compact(List<Segment> segments) {
+		List<Segment> deletedSegments = new ArrayList<>();
+		for (Segment segment : segments) {
+			if (!isDead(segment)) {
+				continue;
+			}
+			try {
+				Files.deleteIfExists(segment.path);
+				deletedSegments.add(segment);
+			} catch (IOException ex) {
+				// not returned, so the next compaction tries again
+			}
+		}
+		return deletedSegments;
+	}
+
+	private boolean isDead(Segment segment) {
+		for (Map.Entry<String, long[]> entry : segment.sequences.entrySet()) {
+			Long snapshotSequence = snapshotSequences.get(entry.getKey());
+			long[] latest = entry.getValue();
+			// the latest snapshot itself and the messages after it are needed
+			if (snapshotSequence == null || latest[0] > snapshotSequence || latest[1] >= snapshotSequence) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public CodecRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Decodes a message or a state recovered from the segments.
+	 */
+	Object decode(ByteBuffer payload) {
+		try {
+			return registry.decode(new ByteBufferInput(registry, payload.duplicate()));
+		} catch (CodecException | BufferUnderflowException ex) {
+			throw new JournalException("Failed to decode a journal record.", ex);
+		}
+	}
+
+	static String segmentName(long segmentIndex) {
+		return String.format("%020d.log", segmentIndex);
+	}
+
+	private static long segmentIndex(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - 4));
+	}
+
+	private static List<Path> segments(Path writerDirectory) throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(writerDirectory, "*.log")) {
+			for (Path path : paths) {
+				segments.add(path);
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * Reads the records of a segment up to the first empty or broken one.
+	 */
+	private Segment load(Path path) throws IOException {
+		Segment segment = new Segment(path);
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		CRC32 crc = new CRC32();
+		while (buffer.remaining() >= JournalWriter.HEADER_SIZE) {
+			int start = buffer.position();
+			int bodySize = buffer.getInt();
+			int checksum = buffer.getInt();
+			if (bodySize < 11 || bodySize > buffer.remaining()) {
+				break;
+			}
+			ByteBuffer body = buffer.duplicate();
+			body.limit(start + JournalWriter.HEADER_SIZE + bodySize);
+			crc.reset();
+			crc.update(body.duplicate());
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			byte kind = body.get();
+			byte[] persistenceIdBytes = new byte[body.getShort() & 0xFFFF];
+			body.get(persistenceIdBytes);
+			long sequence = body.getLong();
+			ByteBuffer payload = body.slice();
+			buffer.position(body.limit());
+
+			String persistenceId = new String(persistenceIdBytes, StandardCharsets.UTF_8);
+			segment.add(kind, persistenceId, sequence);
+			Recovery recovery = recoveries.get(persistenceId);
+			if (recovery == null) {
+				recovery = new Recovery();
+				recoveries.put(persistenceId, recovery);
+			}
+			recovery.lastSequence = Math.max(recovery.lastSequence, sequence);
+			if (kind == SNAPSHOT) {
+				if (sequence >= recovery.snapshotSequence) {
+					recovery.snapshotSequence = sequence;
+					recovery.snapshot = payload;
+					recovery.messages.headMap(sequence, true).clear();
+				}
+			} else if (sequence > recovery.snapshotSequence) {
+				recovery.messages.put(sequence, payload);
+			}
+		}
+		return segment;
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+import org.zxg.concurrent.actor.async.core.codec.ByteBufferOutput;
+import org.zxg.concurrent.actor.async.core.exception.JournalException;
+
+/**
+ * Appends the records of the durable actors of a scheduler to memory-mapped
+ * segments. A record is readable once it is in the mapping, which survives a
+ * crash of the process. The first append after a flush submits one flush task
+ * to the flusher thread of the journal, so the appends made before that task
+ * runs share one force to the disk, and the actors never wait for the disk.
+ * A snapshot only lets the older segments be deleted once it has been forced.
+ * <p>
+ * A record is the length of the body, the CRC-32 of the body, and the body:
+ * the kind, the persistence id, the sequence number and the payload. The length
+ * is written last, so a torn record reads as the end of the segment. The
+ * payload is encoded straight into the mapping; a payload which overflows the
+ * segment is wiped and encoded again at the start of the next one.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class JournalWriter implements Runnable {
+
+	static final int HEADER_SIZE = 8;
+
+	private Journal journal;
+	private ByteBufferOutput output;
+	private Path directory;
+	private int segmentSize;
+	private long nextSegmentIndex;
+	private MappedByteBuffer buffer;
+	private Journal.Segment segment;
+	/**
+	 * The segments before the current one which have not been deleted.
+	 */
+	private List<Journal.Segment> closedSegments;
+	/**
+	 * The mappings of the segments closed since the last flush.
+	 */
+	private List<MappedByteBuffer> rolledBuffers = new ArrayList<>();
+	/**
+	 * The snapshots appended since the last flush.
+	 */
+	private Map<String, Long> pendingSnapshots = new HashMap<>();
+	private CRC32 crc = new CRC32();
+	private boolean isFlushPending;
+	private boolean isClosed;
+	private List<CompletableFuture<Void>> flushFutures = new ArrayList<>();
+
+	public JournalWriter(Journal journal, Path directory, long nextSegmentIndex,
+			List<Journal.Segment> closedSegments) {
+		this.journal = journal;
+		this.output = new ByteBufferOutput(journal.registry, null);
+		this.directory = directory;
+		this.segmentSize = journal.segmentSize;
+		this.nextSegmentIndex = nextSegmentIndex;
+		this.closedSegments = closedSegments;
+	}
+
+	public synchronized void append(byte kind, String persistenceId, byte[] persistenceIdBytes, long sequence,
+			Object value) {
+		if (isClosed) {
+			throw new JournalException("The journal is closed.");
+		}
+		if (persistenceIdBytes.length > Journal.MAX_PERSISTENCE_ID_LENGTH) {
+			throw new JournalException("The persistence id is too long.");
+		}
+		// keeps room for the zero length which ends the segment
+		if (HEADER_SIZE + 1 + 2 + persistenceIdBytes.length + 8 + 4 > segmentSize) {
+			throw new JournalException("The persistence id is larger than the journal segment.");
+		}
+		if (buffer == null) {
+			roll();
+		}
+		boolean isFreshSegment = buffer.position() == 0;
+		while (!tryAppend(kind, persistenceIdBytes, sequence, value)) {
+			if (isFreshSegment) {
+				throw new JournalException("The record is larger than the journal segment.");
+			}
+			roll();
+			isFreshSegment = true;
+		}
+		segment.add(kind, persistenceId, sequence);
+		if (kind == Journal.SNAPSHOT) {
+			pendingSnapshots.merge(persistenceId, sequence, Math::max);
+		}
+		requestFlush();
+	}
+
+	/**
+	 * Returns false, leaving the segment as it was, if the record overflows
+	 * the segment.
+	 */
+	private boolean tryAppend(byte kind, byte[] persistenceId, long sequence, Object value) {
+		int start = buffer.position();
+		ByteBuffer record = buffer.duplicate();
+		record.limit(record.capacity() - 4);
+		if (record.remaining() < HEADER_SIZE) {
+			return false;
+		}
+		try {
+			record.position(start + HEADER_SIZE);
+			record.put(kind);
+			// read back as an unsigned short
+			record.putShort((short) persistenceId.length);
+			record.put(persistenceId);
+			record.putLong(sequence);
+			output.setBuffer(record);
+			output.writeObject(value);
+		} catch (BufferOverflowException ex) {
+			wipe(start, record.position());
+			return false;
+		} catch (RuntimeException ex) {
+			wipe(start, record.position());
+			throw ex;
+		} finally {
+			output.setBuffer(null);
+		}
+		int end = record.position();
+		ByteBuffer body = buffer.duplicate();
+		body.position(start + HEADER_SIZE);
+		body.limit(end);
+		crc.reset();
+		crc.update(body);
+		buffer.putInt(start + 4, (int) crc.getValue());
+		buffer.putInt(start, end - start - HEADER_SIZE);
+		buffer.position(end);
+		return true;
+	}
+
+	private void wipe(int start, int end) {
+		for (int index = start; index < end; index++) {
+			buffer.put(index, (byte) 0);
+		}
+	}
+
+	/**
+	 * Returns the future completed when the records appended so far are on the
+	 * disk.
+	 */
+	public synchronized CompletableFuture<Void> flush() {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		if (buffer == null || isClosed) {
+			future.complete(null);
+			return future;
+		}
+		flushFutures.add(future);
+		requestFlush();
+		return future;
+	}
+
+	private void requestFlush() {
+		if (!isFlushPending) {
+			isFlushPending = true;
+			journal.flusher.execute(this);
+		}
+	}
+
+	/**
+	 * Runs on the flusher thread.
+	 */
+	@Override
+	public void run() {
+		MappedByteBuffer buffer;
+		List<MappedByteBuffer> rolledBuffers;
+		Map<String, Long> snapshots;
+		List<CompletableFuture<Void>> flushFutures;
+		synchronized (this) {
+			isFlushPending = false;
+			buffer = this.buffer;
+			rolledBuffers = this.rolledBuffers;
+			this.rolledBuffers = new ArrayList<>();
+			snapshots = this.pendingSnapshots;
+			this.pendingSnapshots = new HashMap<>();
+			flushFutures = this.flushFutures;
+			this.flushFutures = new ArrayList<>();
+		}
+		for (MappedByteBuffer rolledBuffer : rolledBuffers) {
+			rolledBuffer.force();
+		}
+		if (buffer != null) {
+			buffer.force();
+		}
+		// a completed flush has also deleted the segments made dead
+		if (!snapshots.isEmpty()) {
+			journal.onSnapshots(snapshots);
+		}
+		for (CompletableFuture<Void> future : flushFutures) {
+			future.complete(null);
+		}
+	}
+
+	/**
+	 * Deletes the closed segments which are no longer needed, only called by
+	 * the flusher thread.
+	 */
+	public void compact() {
+		List<Journal.Segment> segments;
+		synchronized (this) {
+			segments = new ArrayList<>(closedSegments);
+		}
+		List<Journal.Segment> deletedSegments = journal.compact(segments);
+		if (!deletedSegments.isEmpty()) {
+			synchronized (this) {
+				closedSegments.removeAll(deletedSegments);
+			}
+		}
+	}
+
+	public synchronized void close() {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+		for (MappedByteBuffer rolledBuffer : rolledBuffers) {
+			rolledBuffer.force();
+		}
+		rolledBuffers.clear();
+		if (buffer != null) {
+			buffer.force();
+			buffer = null;
+		}
+		for (CompletableFuture<Void> future : flushFutures) {
+			future.complete(null);
+		}
+		flushFutures.clear();
+	}
+
+	/**
+	 * Starts a new segment, the previous one is forced by the next flush.
+	 */
+	private void roll() {
+		if (buffer != null) {
+			rolledBuffers.add(buffer);
+			closedSegments.add(segment);
+			buffer = null;
+			segment = null;
+		}
+		Path path = directory.resolve(Journal.segmentName(nextSegmentIndex++));
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		} catch (IOException ex) {
+			throw new JournalException("Failed to create the journal segment \"" + path + "\".", ex);
+		}
+		segment = new Journal.Segment(path);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Mailbox of a durable actor, which journals every message before it is
+ * enqueued. The sequence numbers are taken in the order of the queue, so the
+ * messages are replayed in the order they were received.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class JournaledMailbox extends Mailbox {
+
+	private static final class Entry {
+
+		long sequence;
+		Object message;
+
+		Entry(long sequence, Object message) {
+			this.sequence = sequence;
+			this.message = message;
+		}
+	}
+
+	private Actor actor;
+	private Journal journal;
+	private String persistenceId;
+	private byte[] persistenceIdBytes;
+	private LinkedMailbox queue = new LinkedMailbox();
+	private long lastSequence;
+	/**
+	 * Sequence number of the last message polled, only used by the actor.
+	 */
+	long receivedSequence;
+
+	public JournaledMailbox(Actor actor, Journal journal, String persistenceId, Journal.Recovery recovery) {
+		this.actor = actor;
+		this.journal = journal;
+		this.persistenceId = persistenceId;
+		this.persistenceIdBytes = persistenceId.getBytes(StandardCharsets.UTF_8);
+		this.lastSequence = recovery.lastSequence;
+		this.receivedSequence = recovery.snapshotSequence;
+		for (Map.Entry<Long, ByteBuffer> message : recovery.messages.entrySet()) {
+			queue.offer(new Entry(message.getKey(), journal.decode(message.getValue())));
+		}
+	}
+
+	@Override
+	public void offer(Object message) {
+		if (message instanceof SystemTask) {
+			queue.offer(message);
+			return;
+		}
+		synchronized (this) {
+			long sequence = lastSequence + 1;
+			journal.writer(actor.getSchedulerIndex()).append(Journal.MESSAGE, persistenceId, persistenceIdBytes, sequence,
+					message);
+			lastSequence = sequence;
+			queue.offer(new Entry(sequence, message));
+		}
+	}
+
+	@Override
+	public Object poll() {
+		Object message = queue.poll();
+		if (message instanceof Entry) {
+			Entry entry = (Entry) message;
+			receivedSequence = entry.sequence;
+			return entry.message;
+		}
+		return message;
+	}
+
+	@Override
+	public Object peek() {
+		Object message = queue.peek();
+		return message instanceof Entry ? ((Entry) message).message : message;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int size(int limit) {
+		return queue.size(limit);
+	}
+
+	void snapshot(Object state) {
+		journal.writer(actor.getSchedulerIndex()).append(Journal.SNAPSHOT, persistenceId, persistenceIdBytes,
+				receivedSequence, state);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded multiple-producer single-consumer queue, only the actor which owns
+ * it may poll.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class LinkedMailbox extends Mailbox {
+
+	private static final class Node {
+
+		Object message;
+		volatile Node next;
+
+		Node(Object message) {
+			this.message = message;
+		}
+	}
+
+	private Node head;
+	private AtomicReference<Node> tailRef;
+
+	public LinkedMailbox() {
+		Node stub = new Node(null);
+		this.head = stub;
+		this.tailRef = new AtomicReference<>(stub);
+	}
+
+	@Override
+	public void offer(Object message) {
+		Node node = new Node(message);
+		tailRef.getAndSet(node).next = node;
+	}
+
+	@Override
+	public Object poll() {
+		Node next = head.next;
+		if (next == null) {
+			return null;
+		}
+		head = next;
+		Object message = next.message;
+		next.message = null;
+		return message;
+	}
+
+	@Override
+	public Object peek() {
+		Node next = head.next;
+		return next == null ? null : next.message;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return head.next == null;
+	}
+
+	/**
+	 * Counts the messages by walking the queue, so it is only an estimate when
+	 * called by a thread other than the consumer.
+	 */
+	@Override
+	public int size() {
+		return size(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int size(int limit) {
+		int size = 0;
+		for (Node node = head.next; node != null && size < limit; node = node.next) {
+			size++;
+		}
+		return size;
+	}
+}
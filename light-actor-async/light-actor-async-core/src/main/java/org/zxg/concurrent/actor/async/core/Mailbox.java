@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The queue of the messages and the system tasks of an actor, only the actor
+ * which owns it may poll.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+abstract class Mailbox {
+
+	/**
+	 * Enqueues a message or a system task regardless of the capacity.
+	 */
+	public abstract void offer(Object message);
+
+	public abstract Object poll();
+
+	/**
+	 * Returns the message which would be polled next without removing it.
+	 */
+	public abstract Object peek();
+
+	public abstract boolean isEmpty();
+
+	public abstract int size();
+
+	/**
+	 * Counts the messages, but stops counting at the limit.
+	 */
+	public abstract int size(int limit);
+
+	/**
+	 * Enqueues a message, applying the overflow policy if the mailbox is full.
+	 * 
+	 * @return whether the message has been enqueued
+	 */
+	public boolean put(Object message) {
+		offer(message);
+		return true;
+	}
+
+	/**
+	 * Enqueues a message only if there is room for it, or if the overflow
+	 * policy makes room for it.
+	 * 
+	 * @return whether the message has been enqueued
+	 */
+	public boolean tryPut(Object message) {
+		offer(message);
+		return true;
+	}
+
+	/**
+	 * Enqueues a message, or keeps it waiting until there is room for it. The
+	 * future is completed by the mailbox only if the message has to wait.
+	 * 
+	 * @return whether the message has been enqueued
+	 */
+	public boolean putAsync(Object message, CompletableFuture<Void> future) {
+		offer(message);
+		return true;
+	}
+
+	/**
+	 * Called when the actor is stopped, fails the messages waiting for room.
+	 */
+	public void close() {
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+/**
+ * What a bounded mailbox does with a message sent to it when it is full.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public enum OverflowPolicy {
+	/**
+	 * The message is discarded.
+	 */
+	DROP_NEWEST,
+	/**
+	 * The oldest message in the mailbox is discarded to make room for the
+	 * message.
+	 */
+	DROP_OLDEST,
+	/**
+	 * {@link Actor#send(Object)} throws a
+	 * {@link org.zxg.concurrent.actor.async.core.exception.MailboxFullException}
+	 * and {@link Actor#trySend(Object)} returns {@code false}.
+	 */
+	REJECT,
+	/**
+	 * The message waits outside the mailbox until there is room for it. The
+	 * waiting messages are not bounded.
+	 */
+	AWAIT
+}
@@ -16,8 +16,11 @@
  */
 package org.zxg.concurrent.actor.async.core;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,6 +29,7 @@ import java.util.concurrent.TimeUnit;
 public final class Receive {
 
 	List<ReceiveRule> receiveRules;
+	ConcurrentMap<Class<?>, ReceiveRule[]> dispatchTable;
 
 	long afterTime;
 	TimeUnit afterTimeUnit;
@@ -34,4 +38,44 @@ public final class Receive {
 	Receive() {
 		receiveRules = new LinkedList<>();
 	}
+
+	void compile() {
+		dispatchTable = new ConcurrentHashMap<>();
+	}
+
+	ReceiveRule match(Object message) {
+		for (ReceiveRule rule : rulesOf(message.getClass())) {
+			if (rule.test(message)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the rules which may match the messages of the type, in declared
+	 * order. The type rules which can not match are left out, and no rule after
+	 * a matched type rule is kept, so the first rule is the dispatch target
+	 * whenever it is a type rule.
+	 */
+	private ReceiveRule[] rulesOf(Class<?> messageType) {
+		ReceiveRule[] rules = dispatchTable.get(messageType);
+		if (rules == null) {
+			List<ReceiveRule> candidates = new ArrayList<>();
+			for (ReceiveRule rule : receiveRules) {
+				if (rule.type == null) {
+					candidates.add(rule);
+				} else if (rule.type.isAssignableFrom(messageType)) {
+					candidates.add(rule);
+					break;
+				}
+			}
+			rules = candidates.toArray(new ReceiveRule[candidates.size()]);
+			ReceiveRule[] oldRules = dispatchTable.putIfAbsent(messageType, rules);
+			if (oldRules != null) {
+				rules = oldRules;
+			}
+		}
+		return rules;
+	}
 }
@@ -16,6 +16,7 @@
  */
 package org.zxg.concurrent.actor.async.core;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -49,6 +50,23 @@ public final class ReceiveBuilder {
 		return this;
 	}
 
+	/**
+	 * Receives the matched message together with the messages following it in
+	 * the mailbox which are matched by this rule too, at most the given number
+	 * of messages in order. The messages are only batched when there is no
+	 * saved message, and the list belongs to the receiver.
+	 */
+	public ReceiveBuilder matchBatch(Predicate<Object> matcher, int maxBatch, Consumer<List<Object>> receiver) {
+		if (matcher == null || receiver == null) {
+			throw new NullPointerException();
+		}
+		if (maxBatch <= 0) {
+			throw new IllegalArgumentException("Argument \"maxBatch\" should be a positive number.");
+		}
+		receive.receiveRules.add(new ReceiveRule(matcher, maxBatch, receiver));
+		return this;
+	}
+
 	public ReceiveBuilder matchAny(Consumer<Object> receiver) {
 		if (receiver == null) {
 			throw new NullPointerException();
@@ -79,6 +97,7 @@ public final class ReceiveBuilder {
 		if (receive.receiveRules.isEmpty() && receive.afterHook == null) {
 			throw new InvalidReceiveException();
 		}
+		receive.compile();
 		return receive;
 	}
 }
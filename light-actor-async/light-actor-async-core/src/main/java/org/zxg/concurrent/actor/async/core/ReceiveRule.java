@@ -16,6 +16,7 @@
  */
 package org.zxg.concurrent.actor.async.core;
 
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -30,24 +31,47 @@ final class ReceiveRule {
 
 	public Predicate<Object> matcher;
 	public Consumer<Object> receiver;
+	/**
+	 * Type of the messages matched by this rule, or {@code null} if the matcher
+	 * is not a type matcher.
+	 */
+	public Class<?> type;
+	/**
+	 * Receiver of the batches of messages, or {@code null} if the messages are
+	 * received one by one.
+	 */
+	public Consumer<List<Object>> batchReceiver;
+	public int maxBatch;
 
 	public ReceiveRule() {
-		this.matcher = anyMatcher;
-		this.receiver = emptyReceiver;
+		this(anyMatcher, emptyReceiver);
 	}
 
 	public ReceiveRule(Predicate<Object> matcher) {
-		this.matcher = matcher;
-		this.receiver = emptyReceiver;
+		this(matcher, emptyReceiver);
 	}
 
 	public ReceiveRule(Consumer<Object> receiver) {
-		this.matcher = anyMatcher;
-		this.receiver = receiver;
+		this(anyMatcher, receiver);
 	}
 
 	public ReceiveRule(Predicate<Object> matcher, Consumer<Object> receiver) {
 		this.matcher = matcher;
 		this.receiver = receiver;
+		if (matcher == anyMatcher) {
+			this.type = Object.class;
+		} else if (matcher instanceof TypeMatcher) {
+			this.type = ((TypeMatcher) matcher).type;
+		}
+	}
+
+	public ReceiveRule(Predicate<Object> matcher, int maxBatch, Consumer<List<Object>> batchReceiver) {
+		this(matcher, emptyReceiver);
+		this.maxBatch = maxBatch;
+		this.batchReceiver = batchReceiver;
+	}
+
+	public boolean test(Object message) {
+		return this.type != null || this.matcher.test(message);
 	}
 }
@@ -22,15 +22,13 @@ package org.zxg.concurrent.actor.async.core;
 final class ReceiveTask implements Runnable {
 
 	private Actor actor;
-	private Object message;
 
-	public ReceiveTask(Actor actor, Object message) {
+	public ReceiveTask(Actor actor) {
 		this.actor = actor;
-		this.message = message;
 	}
 
 	@Override
 	public void run() {
-		this.actor.onReceive(this.message);
+		this.actor.run(false);
 	}
 }
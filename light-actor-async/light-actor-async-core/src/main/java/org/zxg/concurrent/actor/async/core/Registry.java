@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.zxg.concurrent.actor.async.core.exception.ActorRegisteredException;
+import org.zxg.concurrent.actor.async.core.exception.ActorStoppedException;
+import org.zxg.concurrent.actor.async.core.exception.InvalidActorNameException;
+import org.zxg.concurrent.actor.async.core.exception.RepeatedActorNameException;
+
+/**
+ * Names of the actors of a group, split into shards by the hash of the name.
+ * Lookups read a shard without locking, changes lock the shard.
+ * <p>
+ * A name containing {@code '/'} is a path, and is indexed under its parent
+ * path, the part before the last {@code '/'}, or {@code "/"} for a top-level
+ * path like {@code "/sessions"}.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class Registry {
+
+	private static final int SHARDS_SIZE = 64;
+
+	private ConcurrentMap<String, Actor>[] shards;
+	private ConcurrentMap<String, Set<String>> children;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Registry() {
+		this.shards = new ConcurrentMap[SHARDS_SIZE];
+		for (int index = 0; index < SHARDS_SIZE; index++) {
+			this.shards[index] = new ConcurrentHashMap<>();
+		}
+		this.children = new ConcurrentHashMap<>();
+	}
+
+	public void register(String name, Actor actor)
+			throws RepeatedActorNameException, ActorRegisteredException, ActorStoppedException {
+		if (name == null || actor == null) {
+			throw new NullPointerException();
+		}
+		ConcurrentMap<String, Actor> shard = shardOf(name);
+		synchronized (shard) {
+			Actor oldActor = shard.get(name);
+			if (oldActor == actor) {
+				return;
+			}
+			// the name of a stopped actor is reused before the actor removes it
+			if (oldActor != null && !oldActor.isStopped()) {
+				throw new RepeatedActorNameException();
+			}
+			put(shard, name, actor);
+		}
+	}
+
+	public void unregister(String name) throws ActorStoppedException, InvalidActorNameException {
+		if (name == null) {
+			throw new NullPointerException();
+		}
+		ConcurrentMap<String, Actor> shard = shardOf(name);
+		synchronized (shard) {
+			Actor actor = shard.get(name);
+			if (actor == null) {
+				throw new InvalidActorNameException();
+			}
+			if (actor.isStopped()) {
+				throw new ActorStoppedException(actor);
+			}
+			actor.nameRef.set(null);
+			shard.remove(name);
+			removeChild(name);
+		}
+	}
+
+	/**
+	 * Removes the name if it is still registered by the actor.
+	 */
+	public void remove(String name, Actor actor) {
+		ConcurrentMap<String, Actor> shard = shardOf(name);
+		synchronized (shard) {
+			if (shard.remove(name, actor)) {
+				removeChild(name);
+			}
+		}
+	}
+
+	public Actor whereis(String name) {
+		return shardOf(name).get(name);
+	}
+
+	public Actor whereisOrCreate(String name, Function<String, ? extends Actor> factory) {
+		if (name == null || factory == null) {
+			throw new NullPointerException();
+		}
+		ConcurrentMap<String, Actor> shard = shardOf(name);
+		Actor actor = shard.get(name);
+		if (actor != null && !actor.isStopped()) {
+			return actor;
+		}
+		// created and started out of the lock, the loser of a race is stopped
+		Actor newActor = factory.apply(name);
+		if (newActor == null) {
+			throw new NullPointerException();
+		}
+		if (newActor.getName() != null) {
+			throw new ActorRegisteredException();
+		}
+		// started before it can be seen, since messages to an actor not started are dropped
+		newActor.start();
+		synchronized (shard) {
+			actor = shard.get(name);
+			if (actor == null || actor.isStopped()) {
+				put(shard, name, newActor);
+				return newActor;
+			}
+		}
+		newActor.stop();
+		return actor;
+	}
+
+	public Iterable<String> registered() {
+		return () -> new Iterator<String>() {
+
+			private int shardIndex = 0;
+			private Iterator<String> iterator = shards[0].keySet().iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!iterator.hasNext()) {
+					if (++shardIndex == SHARDS_SIZE) {
+						return false;
+					}
+					iterator = shards[shardIndex].keySet().iterator();
+				}
+				return true;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return iterator.next();
+			}
+		};
+	}
+
+	public Iterable<String> children(String path) {
+		Set<String> names = children.get(path);
+		if (names == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(names);
+	}
+
+	private void put(ConcurrentMap<String, Actor> shard, String name, Actor actor) {
+		if (actor.isStopped()) {
+			throw new ActorStoppedException(actor);
+		}
+		if (!actor.nameRef.compareAndSet(null, name)) {
+			throw new ActorRegisteredException();
+		}
+		if (actor.isStopped()) {
+			throw new ActorStoppedException(actor);
+		}
+		shard.put(name, actor);
+		String parent = parentOf(name);
+		if (parent != null) {
+			children.compute(parent, (key, names) -> {
+				if (names == null) {
+					names = ConcurrentHashMap.newKeySet();
+				}
+				names.add(name);
+				return names;
+			});
+		}
+	}
+
+	private void removeChild(String name) {
+		String parent = parentOf(name);
+		if (parent != null) {
+			children.computeIfPresent(parent, (key, names) -> {
+				names.remove(name);
+				return names.isEmpty() ? null : names;
+			});
+		}
+	}
+
+	private ConcurrentMap<String, Actor> shardOf(String name) {
+		int hash = name.hashCode();
+		return shards[(hash ^ (hash >>> 16)) & (SHARDS_SIZE - 1)];
+	}
+
+	private static String parentOf(String name) {
+		int index = name.lastIndexOf('/');
+		if (index < 0 || name.length() == 1) {
+			return null;
+		}
+		return index == 0 ? "/" : name.substring(0, index);
+	}
+}
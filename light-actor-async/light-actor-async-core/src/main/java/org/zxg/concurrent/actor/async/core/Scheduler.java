@@ -16,39 +16,243 @@
  */
 package org.zxg.concurrent.actor.async.core;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.zxg.concurrent.actor.async.core.exception.ActorStateException;
+import org.zxg.concurrent.actor.async.core.metrics.ActorInstrument;
+import org.zxg.concurrent.actor.async.core.metrics.Instrumentation;
 
 /**
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
  */
 final class Scheduler {
 
+	/**
+	 * The actors scheduled by the actors run by a thread, which are run by the
+	 * same thread after the current actor.
+	 */
+	private static final class LocalRunQueue {
+
+		Scheduler scheduler;
+		ArrayDeque<Actor> actors = new ArrayDeque<>();
+	}
+
+	/**
+	 * How many actors of the local run queue are run by a task of the executor
+	 * before the rest are handed to the executor, so the other tasks of the
+	 * executor are not starved.
+	 */
+	private static final int LOCAL_RUNS_LIMIT = 64;
+	private static final ThreadLocal<LocalRunQueue> LOCAL_RUN_QUEUE = ThreadLocal.withInitial(LocalRunQueue::new);
+
 	ActorGroup group;
-	private ScheduledExecutorService executor;
+	int index;
+	private Executor executor;
+	private boolean isLocalDispatch;
+	private ScheduledExecutorService timerExecutor;
+	private TimingWheel timingWheel;
 
-	public Scheduler(ActorGroup group, ScheduledExecutorService executor) {
+	public Scheduler(ActorGroup group, int index, ScheduledExecutorService executor) {
+		this(group, index, executor, executor);
+	}
+
+	public Scheduler(ActorGroup group, int index, Executor executor, ScheduledExecutorService timerExecutor) {
 		this.group = group;
+		this.index = index;
 		this.executor = executor;
+		// a fork-join pool already runs the tasks submitted by a worker on it
+		this.isLocalDispatch = !(executor instanceof ForkJoinPool);
+		this.timerExecutor = timerExecutor;
+		this.timingWheel = new TimingWheel(timerExecutor);
 	}
 
 	public void send(Actor actor, Object message) {
-		this.executor.execute(new ReceiveTask(actor, message));
+		// a rejected message throws before it is counted, a dropped or a waiting
+		// one is not counted
+		if (offerPriority(actor, message) || actor.mailbox.put(message)) {
+			onSend(actor);
+			schedule(actor);
+		}
+	}
+
+	public boolean trySend(Actor actor, Object message) {
+		if (!offerPriority(actor, message) && !actor.mailbox.tryPut(message)) {
+			return false;
+		}
+		onSend(actor);
+		schedule(actor);
+		return true;
+	}
+
+	/**
+	 * A message waiting for room in the mailbox is counted when it is put into
+	 * the mailbox.
+	 */
+	public CompletableFuture<Void> sendAsync(Actor actor, Object message) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		if (offerPriority(actor, message) || actor.mailbox.putAsync(message, future)) {
+			onSend(actor);
+			schedule(actor);
+			future.complete(null);
+		}
+		return future;
+	}
+
+	static void onSend(Actor actor) {
+		ActorInstrument instrument = actor.instrument;
+		if (instrument != null) {
+			instrument.onSend();
+		}
+	}
+
+	/**
+	 * Puts the message into the priority lane of the actor if it is matched by
+	 * the priority matcher of the actor.
+	 */
+	private boolean offerPriority(Actor actor, Object message) {
+		if (actor.priorityMatcher == null || !actor.priorityMatcher.test(message)) {
+			return false;
+		}
+		actor.priorityLane.offer(message);
+		return true;
+	}
+
+	/**
+	 * Enqueues a message into the system lane of the actor, which is received
+	 * before the mailbox, without counting it as a sent message. Used for the
+	 * stop requests, the timeouts and the notifications, so that they are not
+	 * delayed by a flooded mailbox.
+	 */
+	public void post(Actor actor, Object message) {
+		actor.systemLane().offer(message);
+		schedule(actor);
+	}
+
+	/**
+	 * Schedules the actor if it is idle, to the scheduler which currently runs
+	 * it, since the actor may have moved after the caller has read its
+	 * scheduler. If the current thread is running an actor of that scheduler,
+	 * the actor is put into the local run queue instead of the executor.
+	 */
+	public void schedule(Actor actor) {
+		if (actor.scheduledRef.compareAndSet(false, true)) {
+			// an idle actor does not move
+			actor.scheduler().dispatch(actor);
+		}
+	}
+
+	private void dispatch(Actor actor) {
+		onSchedule();
+		if (isLocalDispatch) {
+			LocalRunQueue queue = LOCAL_RUN_QUEUE.get();
+			if (queue.scheduler == this) {
+				queue.actors.offer(actor);
+				return;
+			}
+		}
+		this.executor.execute(actor.receiveTask);
+	}
+
+	/**
+	 * Hands the actor which has used up its throughput back to the executor.
+	 */
+	public void reschedule(Actor actor) {
+		onSchedule();
+		this.executor.execute(actor.receiveTask);
+	}
+
+	/**
+	 * Runs the actor which has just been marked as scheduled by a task of this
+	 * scheduler, through the same path as an actor picked up from the
+	 * executor. An actor which has moved to another scheduler is handed to
+	 * that scheduler instead.
+	 */
+	void runInline(Actor actor) {
+		Scheduler scheduler = actor.scheduler();
+		if (scheduler != this) {
+			scheduler.reschedule(actor);
+			return;
+		}
+		onSchedule();
+		run(actor, false);
+	}
+
+	/**
+	 * Runs the actor scheduled to the executor, then the actors it schedules
+	 * to the local run queue.
+	 */
+	void run(Actor actor, boolean isStarting) {
+		onRun();
+		LocalRunQueue queue = isLocalDispatch ? LOCAL_RUN_QUEUE.get() : null;
+		if (queue == null || queue.scheduler != null) {
+			actor.onRun(isStarting);
+			return;
+		}
+		queue.scheduler = this;
+		try {
+			actor.onRun(isStarting);
+			for (int count = 0; count < LOCAL_RUNS_LIMIT; count++) {
+				Actor nextActor = queue.actors.poll();
+				if (nextActor == null) {
+					break;
+				}
+				onRun();
+				nextActor.onRun(false);
+			}
+		} finally {
+			queue.scheduler = null;
+			Actor nextActor;
+			while ((nextActor = queue.actors.poll()) != null) {
+				this.executor.execute(nextActor.receiveTask);
+			}
+		}
+	}
+
+	private void onSchedule() {
+		Instrumentation instrumentation = group.getInstrumentation();
+		if (instrumentation != null) {
+			instrumentation.onSchedule(index);
+		}
+	}
+
+	private void onRun() {
+		Instrumentation instrumentation = group.getInstrumentation();
+		if (instrumentation != null) {
+			instrumentation.onRun(index);
+		}
+	}
+
+	public void after(AfterTask afterTask) {
+		this.timingWheel.add(afterTask);
+	}
+
+	public void submit(Runnable task) {
+		this.executor.execute(task);
 	}
 
-	public ScheduledFuture<?> after(Actor actor) {
-		return this.executor.schedule(actor::onAfter, actor.receive.afterTime, actor.receive.afterTimeUnit);
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		return this.timerExecutor.schedule(command, delay, unit);
 	}
 
 	public void start(Actor actor) {
-		this.executor.execute(actor::onStart);
+		onSchedule();
+		this.executor.execute(new StartTask(actor));
 	}
 
 	public void stop(Actor actor, Object reason) {
-		this.executor.execute(new StopTask(actor, reason));
+		post(actor, new StopTask(actor, reason));
 	}
 
-	public void execute(Runnable command) {
-		this.executor.execute(command);
+	public void execute(Actor actor, Runnable command, Consumer<ActorStateException> failureHandler) {
+		// keeps the order with the messages sent before
+		actor.mailbox.offer(new ExecuteTask(actor, command, failureHandler));
+		schedule(actor);
 	}
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+/**
+ * The down messages, exit messages and stop tasks sent by a stopping actor to
+ * the actors of a scheduler, delivered by a single task. The task drains the
+ * actors which are idle inline instead of handing each of them to the
+ * executor.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class SignalBatch implements Runnable {
+
+	private Scheduler scheduler;
+	private Actor[] actors;
+	private Object[] signals;
+	private int size;
+
+	public SignalBatch(Scheduler scheduler) {
+		this.scheduler = scheduler;
+		this.actors = new Actor[4];
+		this.signals = new Object[4];
+	}
+
+	public void add(Actor actor, Object signal) {
+		if (size == actors.length) {
+			Actor[] newActors = new Actor[size << 1];
+			System.arraycopy(actors, 0, newActors, 0, size);
+			actors = newActors;
+			Object[] newSignals = new Object[size << 1];
+			System.arraycopy(signals, 0, newSignals, 0, size);
+			signals = newSignals;
+		}
+		actors[size] = actor;
+		signals[size] = signal;
+		size++;
+	}
+
+	public void dispatch() {
+		if (size == 1) {
+			scheduler.post(actors[0], signals[0]);
+		} else {
+			scheduler.submit(this);
+		}
+	}
+
+	@Override
+	public void run() {
+		for (int index = 0; index < size; index++) {
+			actors[index].systemLane().offer(signals[index]);
+		}
+		for (int index = 0; index < size; index++) {
+			Actor actor = actors[index];
+			actors[index] = null;
+			signals[index] = null;
+			if (actor.scheduledRef.compareAndSet(false, true)) {
+				scheduler.runInline(actor);
+			}
+		}
+	}
+}
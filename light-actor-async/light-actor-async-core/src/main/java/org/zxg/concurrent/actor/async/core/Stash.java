@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.Arrays;
+
+/**
+ * Unmatched messages of an actor in arrival order. After {@link #rewind()}
+ * the saved messages are scanned again in place, the ones which are still
+ * unmatched keep their positions.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class Stash {
+
+	private static final Object[] EMPTY_ELEMENTS = {};
+
+	private Object[] elements = EMPTY_ELEMENTS;
+	private int size;
+	private int cursor;
+
+	public void add(Object message) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(8, size << 1));
+		}
+		elements[size++] = message;
+		cursor = size;
+	}
+
+	public boolean hasNext() {
+		return cursor < size;
+	}
+
+	public Object next() {
+		return elements[cursor++];
+	}
+
+	public void removePrevious() {
+		int index = --cursor;
+		int moved = size - index - 1;
+		if (moved > 0) {
+			System.arraycopy(elements, index + 1, elements, index, moved);
+		}
+		elements[--size] = null;
+	}
+
+	public void rewind() {
+		cursor = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+		cursor = 0;
+	}
+}
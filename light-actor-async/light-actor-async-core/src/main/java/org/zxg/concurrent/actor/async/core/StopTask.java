@@ -19,7 +19,7 @@ package org.zxg.concurrent.actor.async.core;
 /**
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
  */
-final class StopTask implements Runnable {
+final class StopTask extends SystemTask {
 
 	private Actor actor;
 	private Object reason;
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hashed timing wheel for the receive timeouts of the actors of a scheduler.
+ * <p>
+ * A timeout whose deadline has been moved is put back into the wheel when its
+ * bucket expires, so postponing a timeout never touches the wheel. The wheel
+ * only ticks while it holds timeouts.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class TimingWheel implements Runnable {
+
+	private static final long TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final int WHEEL_SIZE = 512;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private ScheduledExecutorService executor;
+	private AfterTask[] buckets;
+	private LinkedMailbox pendingTasks;
+	private AtomicBoolean isTickingRef;
+	private long startTime;
+	private long tick;
+	private int size;
+
+	public TimingWheel(ScheduledExecutorService executor) {
+		this.executor = executor;
+		this.buckets = new AfterTask[WHEEL_SIZE];
+		this.pendingTasks = new LinkedMailbox();
+		this.isTickingRef = new AtomicBoolean();
+		this.startTime = System.nanoTime();
+	}
+
+	public void add(AfterTask task) {
+		pendingTasks.offer(task);
+		if (isTickingRef.compareAndSet(false, true)) {
+			executor.schedule(this, TICK_DURATION, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public void run() {
+		long now = System.nanoTime();
+		long currentTick = (now - startTime) / TICK_DURATION;
+		if (size == 0) {
+			tick = currentTick;
+		}
+		AfterTask task;
+		while ((task = (AfterTask) pendingTasks.poll()) != null) {
+			place(task);
+		}
+		while (tick <= currentTick) {
+			expire((int) (tick++ & WHEEL_MASK), now);
+		}
+
+		if (size > 0 || !pendingTasks.isEmpty()) {
+			executor.schedule(this, TICK_DURATION, TimeUnit.NANOSECONDS);
+		} else {
+			isTickingRef.set(false);
+			if (!pendingTasks.isEmpty() && isTickingRef.compareAndSet(false, true)) {
+				executor.schedule(this, TICK_DURATION, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private void place(AfterTask task) {
+		long deadlineTick = (task.deadline - startTime + TICK_DURATION - 1) / TICK_DURATION;
+		if (deadlineTick < tick) {
+			deadlineTick = tick;
+		}
+		task.remainingRounds = (deadlineTick - tick) / WHEEL_SIZE;
+		int index = (int) (deadlineTick & WHEEL_MASK);
+		task.next = buckets[index];
+		buckets[index] = task;
+		size++;
+	}
+
+	private void expire(int index, long now) {
+		AfterTask task = buckets[index];
+		buckets[index] = null;
+		while (task != null) {
+			AfterTask next = task.next;
+			task.next = null;
+			size--;
+			if (task.actor.isStopped() || task.isCancelled) {
+				// dropped
+			} else if (task.remainingRounds > 0) {
+				task.remainingRounds--;
+				task.next = buckets[index];
+				buckets[index] = task;
+				size++;
+			} else if (task.deadline - now > 0) {
+				place(task);
+			} else {
+				// the actor may have moved since the task was added
+				task.actor.scheduler().post(task.actor, task);
+			}
+			task = next;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+
+/**
+ * Turns the actors referenced by the encoded values into references which can
+ * be encoded, and back. The references are encoded with their own codecs.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public interface ActorReferences<R> {
+
+	Class<R> referenceType();
+
+	/**
+	 * @return the reference of the actor, or {@code null} if the actor can not
+	 *         be referenced
+	 */
+	R referenceOf(Actor actor);
+
+	/**
+	 * @return the actor of the reference, or {@code null} if there is none
+	 */
+	Actor actorOf(R reference);
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads from a byte buffer between its position and its limit.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class ByteBufferInput extends CodecInput {
+
+	private ByteBuffer buffer;
+
+	public ByteBufferInput(CodecRegistry registry, ByteBuffer buffer) {
+		super(registry);
+		this.buffer = buffer;
+	}
+
+	public void setBuffer(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	@Override
+	public byte readByte() {
+		return buffer.get();
+	}
+
+	@Override
+	public short readShort() {
+		return buffer.getShort();
+	}
+
+	@Override
+	public int readInt() {
+		return buffer.getInt();
+	}
+
+	@Override
+	public long readLong() {
+		return buffer.getLong();
+	}
+
+	@Override
+	public void readBytes(byte[] bytes, int offset, int length) {
+		buffer.get(bytes, offset, length);
+	}
+
+	@Override
+	public int remaining() {
+		return buffer.remaining();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes into a byte buffer from its position, which may be direct or mapped.
+ * A full buffer throws {@link java.nio.BufferOverflowException}.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class ByteBufferOutput extends CodecOutput {
+
+	private ByteBuffer buffer;
+
+	public ByteBufferOutput(CodecRegistry registry, ByteBuffer buffer) {
+		super(registry);
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Moves to another buffer, so that one output is used for many buffers.
+	 */
+	public void setBuffer(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	@Override
+	public void writeByte(int value) {
+		buffer.put((byte) value);
+	}
+
+	@Override
+	public void writeShort(int value) {
+		buffer.putShort((short) value);
+	}
+
+	@Override
+	public void writeInt(int value) {
+		buffer.putInt(value);
+	}
+
+	@Override
+	public void writeLong(long value) {
+		buffer.putLong(value);
+	}
+
+	@Override
+	public void writeBytes(byte[] bytes, int offset, int length) {
+		buffer.put(bytes, offset, length);
+	}
+
+	@Override
+	public int position() {
+		return buffer.position();
+	}
+
+	@Override
+	public void writeInt(int position, int value) {
+		buffer.putInt(position, value);
+	}
+}
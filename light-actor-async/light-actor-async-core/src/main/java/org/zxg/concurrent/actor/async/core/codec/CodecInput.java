@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+import org.zxg.concurrent.actor.async.core.exception.CodecException;
+
+/**
+ * Source of the encoded values, which reads straight from a buffer.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public abstract class CodecInput {
+
+	private final CodecRegistry registry;
+
+	protected CodecInput(CodecRegistry registry) {
+		this.registry = registry;
+	}
+
+	public abstract byte readByte();
+
+	public abstract short readShort();
+
+	public abstract int readInt();
+
+	public abstract long readLong();
+
+	public abstract void readBytes(byte[] bytes, int offset, int length);
+
+	/**
+	 * Returns the number of the bytes which can still be read.
+	 */
+	public abstract int remaining();
+
+	public boolean readBoolean() {
+		return readByte() != 0;
+	}
+
+	public char readChar() {
+		return (char) readShort();
+	}
+
+	public float readFloat() {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	public double readDouble() {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	public int readVarInt() {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new CodecException("The variable-length int is too long.");
+	}
+
+	public String readString() {
+		int utf8Length = readVarInt();
+		if (utf8Length < 0 || utf8Length > remaining()) {
+			throw new CodecException("The string is longer than the input.");
+		}
+		StringBuilder builder = new StringBuilder(utf8Length);
+		int index = 0;
+		while (index < utf8Length) {
+			int b = readByte() & 0xFF;
+			if (b < 0x80) {
+				builder.append((char) b);
+				index += 1;
+			} else if (b < 0xE0) {
+				builder.append((char) (((b & 0x1F) << 6) | (readByte() & 0x3F)));
+				index += 2;
+			} else if (b < 0xF0) {
+				builder.append((char) (((b & 0x0F) << 12) | ((readByte() & 0x3F) << 6) | (readByte() & 0x3F)));
+				index += 3;
+			} else {
+				int codePoint = ((b & 0x07) << 18) | ((readByte() & 0x3F) << 12) | ((readByte() & 0x3F) << 6)
+						| (readByte() & 0x3F);
+				builder.appendCodePoint(codePoint);
+				index += 4;
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Reads a value written by {@link CodecOutput#writeObject(Object)}.
+	 */
+	public Object readObject() {
+		return registry.decode(this);
+	}
+
+	public final CodecRegistry getRegistry() {
+		return registry;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+/**
+ * Destination of the encoded values, which writes straight into a buffer.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public abstract class CodecOutput {
+
+	private final CodecRegistry registry;
+
+	protected CodecOutput(CodecRegistry registry) {
+		this.registry = registry;
+	}
+
+	public abstract void writeByte(int value);
+
+	public abstract void writeShort(int value);
+
+	public abstract void writeInt(int value);
+
+	public abstract void writeLong(long value);
+
+	public abstract void writeBytes(byte[] bytes, int offset, int length);
+
+	/**
+	 * Returns the index at which the next byte is written.
+	 */
+	public abstract int position();
+
+	/**
+	 * Writes the int at an index before {@link #position()}, to fill in a
+	 * length once the value it measures has been written.
+	 */
+	public abstract void writeInt(int position, int value);
+
+	public void writeBoolean(boolean value) {
+		writeByte(value ? 1 : 0);
+	}
+
+	public void writeChar(char value) {
+		writeShort(value);
+	}
+
+	public void writeFloat(float value) {
+		writeInt(Float.floatToRawIntBits(value));
+	}
+
+	public void writeDouble(double value) {
+		writeLong(Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Writes a non-negative int in one to five bytes, seven bits per byte.
+	 */
+	public void writeVarInt(int value) {
+		while ((value & ~0x7F) != 0) {
+			writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+
+	/**
+	 * Writes the length of the UTF-8 encoding of the string, then the
+	 * encoding, without encoding the string into an array first.
+	 */
+	public void writeString(String value) {
+		int length = value.length();
+		int utf8Length = 0;
+		for (int index = 0; index < length; index++) {
+			char c = value.charAt(index);
+			if (c < 0x80) {
+				utf8Length += 1;
+			} else if (c < 0x800) {
+				utf8Length += 2;
+			} else if (Character.isHighSurrogate(c) && index + 1 < length
+					&& Character.isLowSurrogate(value.charAt(index + 1))) {
+				utf8Length += 4;
+				index++;
+			} else {
+				utf8Length += 3;
+			}
+		}
+		writeVarInt(utf8Length);
+		for (int index = 0; index < length; index++) {
+			char c = value.charAt(index);
+			if (c < 0x80) {
+				writeByte(c);
+			} else if (c < 0x800) {
+				writeByte(0xC0 | (c >> 6));
+				writeByte(0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && index + 1 < length
+					&& Character.isLowSurrogate(value.charAt(index + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++index));
+				writeByte(0xF0 | (codePoint >> 18));
+				writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+				writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+				writeByte(0x80 | (codePoint & 0x3F));
+			} else {
+				writeByte(0xE0 | (c >> 12));
+				writeByte(0x80 | ((c >> 6) & 0x3F));
+				writeByte(0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * Writes the id of the class of the value, then the value with the codec
+	 * registered for the class.
+	 */
+	public void writeObject(Object value) {
+		registry.encode(value, this);
+	}
+
+	public final CodecRegistry getRegistry() {
+		return registry;
+	}
+}
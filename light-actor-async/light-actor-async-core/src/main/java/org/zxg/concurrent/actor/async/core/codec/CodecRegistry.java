@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.DownMessage;
+import org.zxg.concurrent.actor.async.core.ExitMessage;
+import org.zxg.concurrent.actor.async.core.exception.CodecException;
+
+/**
+ * Codecs keyed by the exact classes of the values, each registered with a
+ * small id which is written before every value.
+ * <p>
+ * The ids are indexes into an array, so they are at most {@link #MAX_ID},
+ * and the ids below {@link #RESERVED_IDS_SIZE} are reserved for the built-in
+ * codecs: the boxed primitives, strings, byte arrays, {@link DownMessage},
+ * {@link ExitMessage} and actor references. An actor is encoded as its
+ * reference, given by the {@link ActorReferences} of the registry.
+ * <p>
+ * A registry made by {@link #withSerializableFallback(Predicate)} encodes the
+ * serializable values whose classes have no codec with the Java serialization,
+ * which is slow and large, and which only decodes the classes allowed by the
+ * registry. The fallback is never enabled by default, since deserializing any
+ * class from untrusted bytes lets their sender run code.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class CodecRegistry {
+
+	public static final int RESERVED_IDS_SIZE = 32;
+	/**
+	 * The largest id, which is written in two bytes.
+	 */
+	public static final int MAX_ID = (1 << 14) - 1;
+
+	private static final int NULL_ID = 0;
+	private static final int ACTOR_ID = 13;
+	private static final int SERIALIZABLE_ID = 14;
+	private static final int REFERENCE_ID = 15;
+
+	private static final class Entry {
+
+		final int id;
+		final Codec<Object> codec;
+
+		Entry(int id, Codec<Object> codec) {
+			this.id = id;
+			this.codec = codec;
+		}
+	}
+
+	private volatile Entry[] entriesById = new Entry[RESERVED_IDS_SIZE * 2];
+	private final ConcurrentMap<Class<?>, Entry> entriesByType = new ConcurrentHashMap<>();
+	private volatile ActorReferences<?> actorReferences;
+	private final Entry actorEntry;
+	private final Predicate<String> serializableClassNames;
+	private final Entry serializableEntry;
+
+	public CodecRegistry() {
+		this(null);
+	}
+
+	private CodecRegistry(Predicate<String> serializableClassNames) {
+		put(1, Boolean.class, new Codec<Boolean>() {
+			@Override
+			public void encode(Boolean value, CodecOutput out) {
+				out.writeBoolean(value);
+			}
+
+			@Override
+			public Boolean decode(CodecInput in) {
+				return in.readBoolean();
+			}
+		});
+		put(2, Byte.class, new Codec<Byte>() {
+			@Override
+			public void encode(Byte value, CodecOutput out) {
+				out.writeByte(value);
+			}
+
+			@Override
+			public Byte decode(CodecInput in) {
+				return in.readByte();
+			}
+		});
+		put(3, Short.class, new Codec<Short>() {
+			@Override
+			public void encode(Short value, CodecOutput out) {
+				out.writeShort(value);
+			}
+
+			@Override
+			public Short decode(CodecInput in) {
+				return in.readShort();
+			}
+		});
+		put(4, Character.class, new Codec<Character>() {
+			@Override
+			public void encode(Character value, CodecOutput out) {
+				out.writeChar(value);
+			}
+
+			@Override
+			public Character decode(CodecInput in) {
+				return in.readChar();
+			}
+		});
+		put(5, Integer.class, new Codec<Integer>() {
+			@Override
+			public void encode(Integer value, CodecOutput out) {
+				out.writeInt(value);
+			}
+
+			@Override
+			public Integer decode(CodecInput in) {
+				return in.readInt();
+			}
+		});
+		put(6, Long.class, new Codec<Long>() {
+			@Override
+			public void encode(Long value, CodecOutput out) {
+				out.writeLong(value);
+			}
+
+			@Override
+			public Long decode(CodecInput in) {
+				return in.readLong();
+			}
+		});
+		put(7, Float.class, new Codec<Float>() {
+			@Override
+			public void encode(Float value, CodecOutput out) {
+				out.writeFloat(value);
+			}
+
+			@Override
+			public Float decode(CodecInput in) {
+				return in.readFloat();
+			}
+		});
+		put(8, Double.class, new Codec<Double>() {
+			@Override
+			public void encode(Double value, CodecOutput out) {
+				out.writeDouble(value);
+			}
+
+			@Override
+			public Double decode(CodecInput in) {
+				return in.readDouble();
+			}
+		});
+		put(9, String.class, new Codec<String>() {
+			@Override
+			public void encode(String value, CodecOutput out) {
+				out.writeString(value);
+			}
+
+			@Override
+			public String decode(CodecInput in) {
+				return in.readString();
+			}
+		});
+		put(10, byte[].class, new Codec<byte[]>() {
+			@Override
+			public void encode(byte[] value, CodecOutput out) {
+				out.writeVarInt(value.length);
+				out.writeBytes(value, 0, value.length);
+			}
+
+			@Override
+			public byte[] decode(CodecInput in) {
+				int length = in.readVarInt();
+				if (length < 0 || length > in.remaining()) {
+					throw new CodecException("The byte array is longer than the input.");
+				}
+				byte[] value = new byte[length];
+				in.readBytes(value, 0, length);
+				return value;
+			}
+		});
+		put(11, DownMessage.class, new Codec<DownMessage>() {
+			@Override
+			public void encode(DownMessage value, CodecOutput out) {
+				out.writeObject(value.from);
+				out.writeObject(value.reason);
+			}
+
+			@Override
+			public DownMessage decode(CodecInput in) {
+				return new DownMessage(readActor(in), in.readObject());
+			}
+		});
+		put(12, ExitMessage.class, new Codec<ExitMessage>() {
+			@Override
+			public void encode(ExitMessage value, CodecOutput out) {
+				out.writeObject(value.from);
+				out.writeObject(value.reason);
+			}
+
+			@Override
+			public ExitMessage decode(CodecInput in) {
+				return new ExitMessage(readActor(in), in.readObject());
+			}
+		});
+		this.actorEntry = put(ACTOR_ID, Actor.class, new Codec<Actor>() {
+			@Override
+			public void encode(Actor value, CodecOutput out) {
+				out.writeObject(referenceOf(value));
+			}
+
+			@Override
+			public Actor decode(CodecInput in) {
+				return actorOf(in.readObject());
+			}
+		});
+		this.serializableClassNames = serializableClassNames;
+		this.serializableEntry = serializableClassNames == null ? null
+				: put(SERIALIZABLE_ID, Serializable.class, new SerializableCodec(serializableClassNames));
+	}
+
+	/**
+	 * Makes a registry which falls back to the Java serialization for the
+	 * serializable values whose classes have no codec.
+	 * 
+	 * @param allowedClassNames
+	 *            tells whether a class may be serialized and deserialized by its
+	 *            name, which is checked for the value and for every class in
+	 *            the stream, except the primitives, their boxes, strings, enums
+	 *            and the actor references; only the classes the application
+	 *            trusts should be allowed
+	 */
+	public static CodecRegistry withSerializableFallback(Predicate<String> allowedClassNames) {
+		if (allowedClassNames == null) {
+			throw new NullPointerException();
+		}
+		return new CodecRegistry(allowedClassNames);
+	}
+
+	/**
+	 * Registers the codec of the values of exactly the class.
+	 * 
+	 * @param id
+	 *            the id written before the values, from
+	 *            {@link #RESERVED_IDS_SIZE} to {@link #MAX_ID}, which should be
+	 *            the same in all the processes reading them
+	 */
+	public synchronized <T> void register(int id, Class<T> type, Codec<? super T> codec) {
+		if (type == null || codec == null) {
+			throw new NullPointerException();
+		}
+		if (id < RESERVED_IDS_SIZE) {
+			throw new IllegalArgumentException("Argument \"id\" should not be less than " + RESERVED_IDS_SIZE + ".");
+		}
+		if (id > MAX_ID) {
+			throw new IllegalArgumentException("Argument \"id\" should not be greater than " + MAX_ID + ".");
+		}
+		if (id < entriesById.length && entriesById[id] != null) {
+			throw new IllegalArgumentException("The id " + id + " is already registered.");
+		}
+		if (entriesByType.containsKey(type)) {
+			throw new IllegalArgumentException("The class \"" + type.getName() + "\" is already registered.");
+		}
+		put(id, type, codec);
+	}
+
+	/**
+	 * Sets how the actors are referenced, and the codec of the references,
+	 * which takes a reserved id. The references should also be serializable if
+	 * actors are referenced by values encoded with the Java serialization.
+	 */
+	public synchronized <R> void setActorReferences(ActorReferences<R> actorReferences,
+			Codec<? super R> referenceCodec) {
+		if (actorReferences == null || referenceCodec == null) {
+			throw new NullPointerException();
+		}
+		Entry[] entriesById = this.entriesById;
+		if (entriesById[REFERENCE_ID] != null) {
+			entriesByType.values().remove(entriesById[REFERENCE_ID]);
+		}
+		Class<R> referenceType = actorReferences.referenceType();
+		if (entriesByType.containsKey(referenceType)) {
+			throw new IllegalArgumentException("The class \"" + referenceType.getName() + "\" is already registered.");
+		}
+		put(REFERENCE_ID, referenceType, referenceCodec);
+		this.actorReferences = actorReferences;
+	}
+
+	public ActorReferences<?> getActorReferences() {
+		return actorReferences;
+	}
+
+	/**
+	 * Writes the id of the class of the value, then the value.
+	 * 
+	 * @throws CodecException
+	 *             if the class has no codec
+	 */
+	public void encode(Object value, CodecOutput out) {
+		if (value == null) {
+			out.writeVarInt(NULL_ID);
+			return;
+		}
+		Entry entry = entriesByType.get(value.getClass());
+		if (entry == null) {
+			if (value instanceof Actor) {
+				entry = actorEntry;
+			} else if (serializableEntry != null && value instanceof Serializable
+					&& serializableClassNames.test(value.getClass().getName())) {
+				entry = serializableEntry;
+			} else {
+				throw new CodecException("The class \"" + value.getClass().getName() + "\" has no codec.");
+			}
+		}
+		out.writeVarInt(entry.id);
+		entry.codec.encode(value, out);
+	}
+
+	public Object decode(CodecInput in) {
+		int id = in.readVarInt();
+		if (id == NULL_ID) {
+			return null;
+		}
+		Entry[] entriesById = this.entriesById;
+		Entry entry = id >= 0 && id < entriesById.length ? entriesById[id] : null;
+		if (entry == null) {
+			throw new CodecException("The class id " + id + " is not registered.");
+		}
+		return entry.codec.decode(in);
+	}
+
+	/**
+	 * Reads the sender of a notification, which may be {@code null}.
+	 */
+	private static Actor readActor(CodecInput in) {
+		Object actor = in.readObject();
+		if (actor != null && !(actor instanceof Actor)) {
+			throw new CodecException("The sender \"" + actor + "\" of a notification is not an actor.");
+		}
+		return (Actor) actor;
+	}
+
+	Object referenceOf(Actor actor) {
+		ActorReferences<?> actorReferences = this.actorReferences;
+		Object reference = actorReferences == null ? null : actorReferences.referenceOf(actor);
+		if (reference == null) {
+			throw new CodecException("The actor \"" + actor + "\" can not be referenced.");
+		}
+		return reference;
+	}
+
+	@SuppressWarnings("unchecked")
+	<R> Actor actorOf(Object reference) {
+		ActorReferences<R> actorReferences = (ActorReferences<R>) this.actorReferences;
+		if (actorReferences == null || !actorReferences.referenceType().isInstance(reference)) {
+			throw new CodecException("The reference \"" + reference + "\" can not be resolved.");
+		}
+		return actorReferences.actorOf(actorReferences.referenceType().cast(reference));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Entry put(int id, Class<T> type, Codec<? super T> codec) {
+		Entry entry = new Entry(id, (Codec<Object>) codec);
+		Entry[] entriesById = this.entriesById;
+		if (id >= entriesById.length) {
+			entriesById = Arrays.copyOf(entriesById, Math.max(id + 1, entriesById.length << 1));
+		} else {
+			entriesById = entriesById.clone();
+		}
+		entriesById[id] = entry;
+		this.entriesById = entriesById;
+		entriesByType.put(type, entry);
+		return entry;
+	}
+}
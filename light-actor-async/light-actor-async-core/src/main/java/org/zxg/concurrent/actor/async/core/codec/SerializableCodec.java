@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.exception.CodecException;
+
+/**
+ * Fallback codec of the serializable values whose classes have no codec. The
+ * serialization stream is written straight into the output after its length,
+ * and the actors referenced by the value are replaced by their references.
+ * Only the allowed classes are resolved when a value is deserialized, so a
+ * stream can not make any other class run its code.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class SerializableCodec implements Codec<Object> {
+
+	private static final class OutputAdapter extends OutputStream {
+
+		private final CodecOutput out;
+
+		OutputAdapter(CodecOutput out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) {
+			out.writeByte(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			out.writeBytes(b, off, len);
+		}
+	}
+
+	private static final class InputAdapter extends InputStream {
+
+		private final CodecInput in;
+		private int remaining;
+
+		InputAdapter(CodecInput in, int length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() {
+			if (remaining == 0) {
+				return -1;
+			}
+			remaining--;
+			return in.readByte() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (remaining == 0) {
+				return -1;
+			}
+			len = Math.min(len, remaining);
+			in.readBytes(b, off, len);
+			remaining -= len;
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return remaining;
+		}
+	}
+
+	private static final class Output extends ObjectOutputStream {
+
+		private final CodecRegistry registry;
+
+		Output(CodecOutput out) throws IOException {
+			super(new OutputAdapter(out));
+			this.registry = out.getRegistry();
+			enableReplaceObject(registry.getActorReferences() != null);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) {
+			if (obj instanceof Actor) {
+				return registry.referenceOf((Actor) obj);
+			}
+			return obj;
+		}
+	}
+
+	private final class Input extends ObjectInputStream {
+
+		private final CodecRegistry registry;
+		private final Class<?> referenceType;
+
+		Input(CodecInput in, int length) throws IOException {
+			super(new InputAdapter(in, length));
+			this.registry = in.getRegistry();
+			ActorReferences<?> actorReferences = registry.getActorReferences();
+			this.referenceType = actorReferences == null ? null : actorReferences.referenceType();
+			enableResolveObject(referenceType != null);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			Class<?> type = classes.get(desc.getName());
+			if (type == null) {
+				if (!isAllowed(desc.getName(), referenceType)) {
+					throw new InvalidClassException(desc.getName(), "The class is not allowed.");
+				}
+				try {
+					type = Class.forName(desc.getName(), false, classLoader);
+				} catch (ClassNotFoundException ex) {
+					// primitive types
+					type = super.resolveClass(desc);
+				}
+				classes.putIfAbsent(desc.getName(), type);
+			}
+			return type;
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			throw new InvalidClassException("The proxy classes are not allowed.");
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) {
+			if (referenceType.isInstance(obj)) {
+				return registry.actorOf(obj);
+			}
+			return obj;
+		}
+	}
+
+	private static final Set<String> SAFE_CLASS_NAMES = new HashSet<>(Arrays.asList(Boolean.class.getName(),
+			Byte.class.getName(), Short.class.getName(), Character.class.getName(), Integer.class.getName(),
+			Long.class.getName(), Float.class.getName(), Double.class.getName(), Number.class.getName(),
+			String.class.getName(), Enum.class.getName()));
+
+	private final Predicate<String> allowedClassNames;
+	private final ClassLoader classLoader;
+	/**
+	 * The resolved classes, all of which are allowed.
+	 */
+	private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+	SerializableCodec(Predicate<String> allowedClassNames) {
+		this.allowedClassNames = allowedClassNames;
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		this.classLoader = classLoader == null ? SerializableCodec.class.getClassLoader() : classLoader;
+	}
+
+	/**
+	 * An array is allowed if its component type is.
+	 */
+	private boolean isAllowed(String className, Class<?> referenceType) {
+		int dimensions = 0;
+		while (dimensions < className.length() && className.charAt(dimensions) == '[') {
+			dimensions++;
+		}
+		if (dimensions > 0) {
+			if (className.charAt(dimensions) != 'L') {
+				// an array of primitives
+				return className.length() == dimensions + 1;
+			}
+			className = className.substring(dimensions + 1, className.length() - 1);
+		}
+		return SAFE_CLASS_NAMES.contains(className)
+				|| (referenceType != null && referenceType.getName().equals(className))
+				|| allowedClassNames.test(className);
+	}
+
+	@Override
+	public void encode(Object value, CodecOutput out) {
+		int lengthPosition = out.position();
+		out.writeInt(0);
+		try (ObjectOutputStream output = new Output(out)) {
+			output.writeObject(value);
+		} catch (IOException ex) {
+			throw new CodecException("Failed to serialize \"" + value.getClass().getName() + "\".", ex);
+		}
+		out.writeInt(lengthPosition, out.position() - lengthPosition - 4);
+	}
+
+	@Override
+	public Object decode(CodecInput in) {
+		int length = in.readInt();
+		if (length < 0 || length > in.remaining()) {
+			throw new CodecException("The serialized value is longer than the input.");
+		}
+		try (ObjectInputStream input = new Input(in, length)) {
+			return input.readObject();
+		} catch (IOException | ClassNotFoundException ex) {
+			throw new CodecException("Failed to deserialize the value.", ex);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+
+/**
+ * Counters of one actor. Only the sent messages are counted by several
+ * threads, the other counters are written by the actor itself.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class ActorMetrics implements ActorInstrument {
+
+	private Metrics metrics;
+	private LongAdder sentMessages = new LongAdder();
+	private volatile long receivedMessages;
+	private volatile long receiveTime;
+	private volatile long maxReceiveTime;
+
+	ActorMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void onSend() {
+		sentMessages.increment();
+		metrics.sentMessages.increment();
+	}
+
+	@Override
+	public void onReceive(long elapsedNanos) {
+		receivedMessages++;
+		receiveTime += elapsedNanos;
+		if (elapsedNanos > maxReceiveTime) {
+			maxReceiveTime = elapsedNanos;
+		}
+		metrics.receivedMessages.increment();
+		metrics.receiveTime.record(elapsedNanos);
+	}
+
+	@Override
+	public void onAfter(long elapsedNanos) {
+		metrics.afters.increment();
+		metrics.afterTime.record(elapsedNanos);
+	}
+
+	@Override
+	public void onStart() {
+		metrics.startedActors.increment();
+	}
+
+	@Override
+	public void onStop(Object reason) {
+		metrics.stoppedActors.increment();
+	}
+
+	ActorMetricsSnapshot snapshot(String name, Actor actor) {
+		return new ActorMetricsSnapshot(name, sentMessages.sum(), receivedMessages, receiveTime, maxReceiveTime,
+				actor.getMailboxSize(), actor.getSavedMessagesSize());
+	}
+}
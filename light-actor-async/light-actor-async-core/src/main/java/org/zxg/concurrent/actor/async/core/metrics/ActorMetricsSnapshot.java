@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.metrics;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class ActorMetricsSnapshot {
+
+	public final String name;
+	public final long sentMessages;
+	public final long receivedMessages;
+	/**
+	 * Total time in nanoseconds spent on matching and receiving messages.
+	 */
+	public final long receiveTime;
+	public final long maxReceiveTime;
+	public final int mailboxSize;
+	public final int savedMessagesSize;
+
+	ActorMetricsSnapshot(String name, long sentMessages, long receivedMessages, long receiveTime, long maxReceiveTime,
+			int mailboxSize, int savedMessagesSize) {
+		this.name = name;
+		this.sentMessages = sentMessages;
+		this.receivedMessages = receivedMessages;
+		this.receiveTime = receiveTime;
+		this.maxReceiveTime = maxReceiveTime;
+		this.mailboxSize = mailboxSize;
+		this.savedMessagesSize = savedMessagesSize;
+	}
+
+	public double getMeanReceiveTime() {
+		return receivedMessages == 0L ? 0.0 : (double) receiveTime / receivedMessages;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ActorMetricsSnapshot [name=");
+		builder.append(name);
+		builder.append(", sentMessages=");
+		builder.append(sentMessages);
+		builder.append(", receivedMessages=");
+		builder.append(receivedMessages);
+		builder.append(", receiveTime=");
+		builder.append(receiveTime);
+		builder.append(", maxReceiveTime=");
+		builder.append(maxReceiveTime);
+		builder.append(", mailboxSize=");
+		builder.append(mailboxSize);
+		builder.append(", savedMessagesSize=");
+		builder.append(savedMessagesSize);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram with logarithmic buckets, each power of two is split
+ * into {@value #SUB_BUCKETS_SIZE} linear buckets, so a recorded value is kept
+ * with a relative error under 12.5%.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class Histogram {
+
+	static final int SUB_BUCKET_BITS = 3;
+	static final int SUB_BUCKETS_SIZE = 1 << SUB_BUCKET_BITS;
+	static final int BUCKETS_SIZE = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS_SIZE;
+
+	private LongAdder[] buckets;
+	private LongAdder sum;
+	private LongAccumulator max;
+
+	public Histogram() {
+		this.buckets = new LongAdder[BUCKETS_SIZE];
+		for (int index = 0; index < BUCKETS_SIZE; index++) {
+			this.buckets[index] = new LongAdder();
+		}
+		this.sum = new LongAdder();
+		this.max = new LongAccumulator(Math::max, 0L);
+	}
+
+	public void record(long value) {
+		if (value < 0L) {
+			value = 0L;
+		}
+		buckets[indexOf(value)].increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	public HistogramSnapshot snapshot() {
+		long[] counts = new long[BUCKETS_SIZE];
+		for (int index = 0; index < BUCKETS_SIZE; index++) {
+			counts[index] = buckets[index].sum();
+		}
+		return new HistogramSnapshot(counts, sum.sum(), max.get());
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS_SIZE) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subIndex = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS_SIZE - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS_SIZE + subIndex;
+	}
+
+	static long upperBoundOf(int index) {
+		if (index < SUB_BUCKETS_SIZE) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS_SIZE + SUB_BUCKET_BITS - 1;
+		int subIndex = index % SUB_BUCKETS_SIZE;
+		int shift = exponent - SUB_BUCKET_BITS;
+		long lowerBound = ((long) (SUB_BUCKETS_SIZE + subIndex)) << shift;
+		return lowerBound + (1L << shift) - 1L;
+	}
+}
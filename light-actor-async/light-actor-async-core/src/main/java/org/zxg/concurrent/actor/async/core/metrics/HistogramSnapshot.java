@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.metrics;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class HistogramSnapshot {
+
+	private long[] counts;
+	private long count;
+	private long sum;
+	private long max;
+
+	HistogramSnapshot(long[] counts, long sum, long max) {
+		this.counts = counts;
+		for (long bucketCount : counts) {
+			this.count += bucketCount;
+		}
+		this.sum = sum;
+		this.max = max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count == 0L ? 0.0 : (double) sum / count;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket which holds the given percentile.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0.0 || percentile > 100.0) {
+			throw new IllegalArgumentException("Argument \"percentile\" should be between 0 and 100.");
+		}
+		if (count == 0L) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0L;
+		for (int index = 0; index < counts.length; index++) {
+			seen += counts[index];
+			if (seen >= rank) {
+				return Math.min(Histogram.upperBoundOf(index), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("HistogramSnapshot [count=");
+		builder.append(count);
+		builder.append(", mean=");
+		builder.append(getMean());
+		builder.append(", p50=");
+		builder.append(getPercentile(50.0));
+		builder.append(", p99=");
+		builder.append(getPercentile(99.0));
+		builder.append(", max=");
+		builder.append(max);
+		builder.append("]");
+		return builder.toString();
+	}
+}
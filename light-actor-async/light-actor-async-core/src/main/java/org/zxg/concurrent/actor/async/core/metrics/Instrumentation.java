@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.metrics;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+
+/**
+ * Receives the events of the actors and the schedulers of a group. The
+ * methods are called on the hot paths of the group, so they should be cheap
+ * and must not block.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public interface Instrumentation {
+
+	void attach(ActorGroup group, int schedulersSize);
+
+	/**
+	 * Called when an actor of the group is created.
+	 * 
+	 * @return the instrument of the actor, or {@code null} if the actor should
+	 *         not be instrumented
+	 */
+	ActorInstrument instrument(Actor actor);
+
+	/**
+	 * Called when an actor is handed to the executor of a scheduler.
+	 */
+	void onSchedule(int schedulerIndex);
+
+	/**
+	 * Called when an actor handed to the executor of a scheduler starts to run.
+	 */
+	void onRun(int schedulerIndex);
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+
+/**
+ * Built-in instrumentation which counts the events of a group with striped
+ * counters. A metrics instance can be attached to only one group.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class Metrics implements Instrumentation {
+
+	private volatile ActorGroup group;
+	private LongAdder[] schedulerQueueLengths;
+	LongAdder sentMessages = new LongAdder();
+	LongAdder receivedMessages = new LongAdder();
+	LongAdder afters = new LongAdder();
+	LongAdder startedActors = new LongAdder();
+	LongAdder stoppedActors = new LongAdder();
+	Histogram receiveTime = new Histogram();
+	Histogram afterTime = new Histogram();
+
+	@Override
+	public synchronized void attach(ActorGroup group, int schedulersSize) {
+		if (this.group != null) {
+			throw new IllegalStateException("The metrics has been attached to a group.");
+		}
+		this.schedulerQueueLengths = new LongAdder[schedulersSize];
+		for (int index = 0; index < schedulersSize; index++) {
+			this.schedulerQueueLengths[index] = new LongAdder();
+		}
+		this.group = group;
+	}
+
+	@Override
+	public ActorInstrument instrument(Actor actor) {
+		return new ActorMetrics(this);
+	}
+
+	@Override
+	public void onSchedule(int schedulerIndex) {
+		schedulerQueueLengths[schedulerIndex].increment();
+	}
+
+	@Override
+	public void onRun(int schedulerIndex) {
+		schedulerQueueLengths[schedulerIndex].decrement();
+	}
+
+	public MetricsSnapshot snapshot() {
+		long[] queueLengths;
+		if (group == null) {
+			queueLengths = new long[0];
+		} else {
+			queueLengths = new long[schedulerQueueLengths.length];
+			for (int index = 0; index < queueLengths.length; index++) {
+				queueLengths[index] = schedulerQueueLengths[index].sum();
+			}
+		}
+		return new MetricsSnapshot(sentMessages.sum(), receivedMessages.sum(), afters.sum(), startedActors.sum(),
+				stoppedActors.sum(), receiveTime.snapshot(), afterTime.snapshot(), queueLengths);
+	}
+
+	/**
+	 * Returns the snapshot of the actor registered with the name, or
+	 * {@code null} if no instrumented actor is registered with it.
+	 */
+	public ActorMetricsSnapshot snapshot(String name) {
+		ActorGroup group = this.group;
+		if (group == null) {
+			return null;
+		}
+		Actor actor = group.whereis(name);
+		if (actor == null) {
+			return null;
+		}
+		ActorInstrument instrument = actor.getInstrument();
+		if (!(instrument instanceof ActorMetrics)) {
+			return null;
+		}
+		return ((ActorMetrics) instrument).snapshot(name, actor);
+	}
+
+	/**
+	 * Returns the snapshots of all the registered and instrumented actors, by
+	 * name.
+	 */
+	public Map<String, ActorMetricsSnapshot> registeredSnapshots() {
+		Map<String, ActorMetricsSnapshot> snapshots = new LinkedHashMap<>();
+		ActorGroup group = this.group;
+		if (group != null) {
+			for (String name : group.registered()) {
+				ActorMetricsSnapshot snapshot = snapshot(name);
+				if (snapshot != null) {
+					snapshots.put(name, snapshot);
+				}
+			}
+		}
+		return snapshots;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.metrics;
+
+import java.util.Arrays;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class MetricsSnapshot {
+
+	public final long sentMessages;
+	public final long receivedMessages;
+	public final long afters;
+	public final long startedActors;
+	public final long stoppedActors;
+	/**
+	 * Time in nanoseconds spent on matching and receiving a message.
+	 */
+	public final HistogramSnapshot receiveTime;
+	/**
+	 * Time in nanoseconds spent on running a receive timeout.
+	 */
+	public final HistogramSnapshot afterTime;
+	private final long[] schedulerQueueLengths;
+
+	MetricsSnapshot(long sentMessages, long receivedMessages, long afters, long startedActors, long stoppedActors,
+			HistogramSnapshot receiveTime, HistogramSnapshot afterTime, long[] schedulerQueueLengths) {
+		this.sentMessages = sentMessages;
+		this.receivedMessages = receivedMessages;
+		this.afters = afters;
+		this.startedActors = startedActors;
+		this.stoppedActors = stoppedActors;
+		this.receiveTime = receiveTime;
+		this.afterTime = afterTime;
+		this.schedulerQueueLengths = schedulerQueueLengths;
+	}
+
+	/**
+	 * Returns the number of runnable actors waiting in the executor of the
+	 * scheduler.
+	 */
+	public long getSchedulerQueueLength(int schedulerIndex) {
+		return schedulerQueueLengths[schedulerIndex];
+	}
+
+	public int getSchedulersSize() {
+		return schedulerQueueLengths.length;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("MetricsSnapshot [sentMessages=");
+		builder.append(sentMessages);
+		builder.append(", receivedMessages=");
+		builder.append(receivedMessages);
+		builder.append(", afters=");
+		builder.append(afters);
+		builder.append(", startedActors=");
+		builder.append(startedActors);
+		builder.append(", stoppedActors=");
+		builder.append(stoppedActors);
+		builder.append(", receiveTime=");
+		builder.append(receiveTime);
+		builder.append(", afterTime=");
+		builder.append(afterTime);
+		builder.append(", schedulerQueueLengths=");
+		builder.append(Arrays.toString(schedulerQueueLengths));
+		builder.append("]");
+		return builder.toString();
+	}
+}
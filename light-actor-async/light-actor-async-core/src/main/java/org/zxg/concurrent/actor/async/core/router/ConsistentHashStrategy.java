@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.router;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+
+/**
+ * Selects the routee by the hash of the key of the message on a ring of
+ * virtual nodes, so adding or removing a routee only moves the keys of that
+ * routee.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class ConsistentHashStrategy implements RoutingStrategy {
+
+	private Function<Object, ?> keyMapper;
+	private int virtualNodesSize;
+	private int[] ringHashes;
+	private Actor[] ringRoutees;
+
+	public ConsistentHashStrategy(Function<Object, ?> keyMapper) {
+		this(keyMapper, 32);
+	}
+
+	public ConsistentHashStrategy(Function<Object, ?> keyMapper, int virtualNodesSize) {
+		Objects.requireNonNull(keyMapper);
+		if (virtualNodesSize <= 0) {
+			throw new IllegalArgumentException("Argument \"virtualNodesSize\" should be a positive number.");
+		}
+		this.keyMapper = keyMapper;
+		this.virtualNodesSize = virtualNodesSize;
+		this.ringHashes = new int[0];
+		this.ringRoutees = new Actor[0];
+	}
+
+	@Override
+	public void onRouteesChanged(Actor[] routees) {
+		int nodesSize = routees.length * virtualNodesSize;
+		long[] nodes = new long[nodesSize];
+		int nodeIndex = 0;
+		for (int routeeIndex = 0; routeeIndex < routees.length; routeeIndex++) {
+			int routeeHash = System.identityHashCode(routees[routeeIndex]);
+			for (int virtualNode = 0; virtualNode < virtualNodesSize; virtualNode++) {
+				int hash = mix(routeeHash * 31 + virtualNode);
+				// sorts by the hash, keeping the routee index in the low bits
+				nodes[nodeIndex++] = ((long) hash << 32) | routeeIndex;
+			}
+		}
+		Arrays.sort(nodes);
+		int[] ringHashes = new int[nodesSize];
+		Actor[] ringRoutees = new Actor[nodesSize];
+		for (nodeIndex = 0; nodeIndex < nodesSize; nodeIndex++) {
+			ringHashes[nodeIndex] = (int) (nodes[nodeIndex] >> 32);
+			ringRoutees[nodeIndex] = routees[(int) nodes[nodeIndex]];
+		}
+		this.ringHashes = ringHashes;
+		this.ringRoutees = ringRoutees;
+	}
+
+	@Override
+	public Actor select(Object message, Actor[] routees) {
+		if (ringRoutees.length == 0) {
+			onRouteesChanged(routees);
+		}
+		int hash = mix(Objects.hashCode(keyMapper.apply(message)));
+		int index = Arrays.binarySearch(ringHashes, hash);
+		if (index < 0) {
+			index = -index - 1;
+			if (index == ringHashes.length) {
+				index = 0;
+			}
+		}
+		return ringRoutees[index];
+	}
+
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
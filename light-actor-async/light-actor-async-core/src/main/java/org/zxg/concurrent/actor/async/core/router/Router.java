@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.router;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+import org.zxg.concurrent.actor.async.core.DownMessage;
+import org.zxg.concurrent.actor.async.core.ExitMessage;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.async.core.TypeMatcher;
+
+/**
+ * Actor which sends each message it receives to one of its routees, selected
+ * by the routing strategy, or to all of them if the message is a
+ * {@link Broadcast}. A message received when there is no routee is dropped.
+ * The exit and down notifications are never routed.
+ * <p>
+ * The routees added by {@link #addRoutee(Actor)} are monitored and removed
+ * when they stop. The routees of a pool router are created by its factory and
+ * linked to the router, so they stop with it, and a routee which stops is
+ * replaced by a new one. If the routees stop more often than the restart
+ * limit allows, the router stops with the reason of the last stop instead of
+ * replacing them again. A pool router also stops with any other actor linked
+ * to it, like an actor which does not trap the stops.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class Router extends Actor {
+
+	private static final Actor[] NO_ROUTEES = new Actor[0];
+
+	public static final int DEFAULT_MAX_RESTARTS = 10;
+	public static final long DEFAULT_RESTART_WINDOW_MILLIS = 10_000L;
+
+	private RoutingStrategy strategy;
+	private Supplier<? extends Actor> routeeFactory;
+	private int poolSize;
+	private volatile Actor[] routees = NO_ROUTEES;
+	private int maxRestarts = DEFAULT_MAX_RESTARTS;
+	private long restartWindowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RESTART_WINDOW_MILLIS);
+	/**
+	 * The times of the latest restarts, as a ring.
+	 */
+	private long[] restartTimes = new long[DEFAULT_MAX_RESTARTS];
+	private int restartsSize;
+	private int restartIndex;
+
+	public Router(ActorGroup group, RoutingStrategy strategy) {
+		super(group);
+		Objects.requireNonNull(strategy);
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Creates a pool router, whose routees are created by the factory when it
+	 * starts. The factory should return a new actor which is not started.
+	 */
+	public Router(ActorGroup group, RoutingStrategy strategy, Supplier<? extends Actor> routeeFactory,
+			int poolSize) {
+		this(group, strategy);
+		Objects.requireNonNull(routeeFactory);
+		if (poolSize < 0) {
+			throw new IllegalArgumentException("Argument \"poolSize\" should not be a negative number.");
+		}
+		this.routeeFactory = routeeFactory;
+		this.poolSize = poolSize;
+	}
+
+	@Override
+	protected Receive createReceive() {
+		return new ReceiveBuilder().match(new TypeMatcher(Broadcast.class), this::broadcast)
+				.match(new TypeMatcher(ExitMessage.class), this::onExit)
+				.match(new TypeMatcher(DownMessage.class), this::onDown).matchAny(this::route).build();
+	}
+
+	@Override
+	protected void preStart() throws Exception {
+		if (routeeFactory != null) {
+			setTrapStop(true);
+			resizePool(poolSize);
+		}
+	}
+
+	public final void addRoutee(Actor routee) {
+		Objects.requireNonNull(routee);
+		if (routeeFactory != null) {
+			throw new IllegalStateException("The routees of a pool router are created by its factory.");
+		}
+		execute(() -> {
+			if (indexOf(routee) < 0 && !routee.isStopped()) {
+				monitor(routee);
+				setRoutees(append(routees, routee));
+			}
+		});
+	}
+
+	public final void removeRoutee(Actor routee) {
+		Objects.requireNonNull(routee);
+		if (routeeFactory != null) {
+			throw new IllegalStateException("The routees of a pool router are removed by resizing it.");
+		}
+		execute(() -> removeRouteeAt(indexOf(routee)));
+	}
+
+	/**
+	 * Creates or stops routees of the pool router until it has the given
+	 * number of routees.
+	 */
+	public final void resize(int poolSize) {
+		if (routeeFactory == null) {
+			throw new IllegalStateException("The router is not a pool router.");
+		}
+		if (poolSize < 0) {
+			throw new IllegalArgumentException("Argument \"poolSize\" should not be a negative number.");
+		}
+		execute(() -> resizePool(poolSize));
+	}
+
+	/**
+	 * Sets how many routees of the pool router may be replaced within the
+	 * window, the router stops when one more routee stops.
+	 */
+	public final void setRestartLimit(int maxRestarts, long window, TimeUnit unit) {
+		if (routeeFactory == null) {
+			throw new IllegalStateException("The router is not a pool router.");
+		}
+		Objects.requireNonNull(unit);
+		if (maxRestarts < 0) {
+			throw new IllegalArgumentException("Argument \"maxRestarts\" should not be a negative number.");
+		}
+		if (window <= 0) {
+			throw new IllegalArgumentException("Argument \"window\" should be a positive number.");
+		}
+		long restartWindowNanos = unit.toNanos(window);
+		execute(() -> {
+			this.maxRestarts = maxRestarts;
+			this.restartWindowNanos = restartWindowNanos;
+			this.restartTimes = new long[maxRestarts];
+			this.restartsSize = 0;
+			this.restartIndex = 0;
+		});
+	}
+
+	/**
+	 * Returns a snapshot of the routees.
+	 */
+	public final Actor[] getRoutees() {
+		return routees.clone();
+	}
+
+	private void route(Object message) {
+		Actor[] routees = this.routees;
+		if (routees.length == 0) {
+			return;
+		}
+		Actor routee = routees.length == 1 ? routees[0] : strategy.select(message, routees);
+		routee.send(message);
+	}
+
+	private void broadcast(Object broadcast) {
+		Object message = ((Broadcast) broadcast).message;
+		for (Actor routee : routees) {
+			routee.send(message);
+		}
+	}
+
+	private void onExit(Object message) {
+		ExitMessage exitMessage = (ExitMessage) message;
+		int index = indexOf(exitMessage.from);
+		if (index < 0) {
+			// the router only traps the exits of its routees
+			stop(exitMessage.reason);
+			return;
+		}
+		removeRouteeAt(index);
+		if (isStopped()) {
+			return;
+		}
+		if (!tryRestart()) {
+			stop(exitMessage.reason);
+			return;
+		}
+		resizePool(poolSize);
+	}
+
+	/**
+	 * Records a restart, returns false if it exceeds the restart limit.
+	 */
+	private boolean tryRestart() {
+		if (maxRestarts == 0) {
+			return false;
+		}
+		long now = System.nanoTime();
+		if (restartsSize == maxRestarts) {
+			// the slot of the next restart holds the oldest one
+			if (now - restartTimes[restartIndex] < restartWindowNanos) {
+				return false;
+			}
+		} else {
+			restartsSize++;
+		}
+		restartTimes[restartIndex] = now;
+		restartIndex = (restartIndex + 1) % maxRestarts;
+		return true;
+	}
+
+	private void onDown(Object message) {
+		DownMessage downMessage = (DownMessage) message;
+		removeRouteeAt(indexOf(downMessage.from));
+	}
+
+	private void resizePool(int poolSize) {
+		this.poolSize = poolSize;
+		Actor[] routees = this.routees;
+		if (routees.length < poolSize) {
+			Actor[] newRoutees = Arrays.copyOf(routees, poolSize);
+			for (int index = routees.length; index < poolSize; index++) {
+				Actor routee = routeeFactory.get();
+				link(routee);
+				routee.start();
+				newRoutees[index] = routee;
+			}
+			setRoutees(newRoutees);
+		} else if (routees.length > poolSize) {
+			setRoutees(Arrays.copyOf(routees, poolSize));
+			for (int index = poolSize; index < routees.length; index++) {
+				unlink(routees[index]);
+				routees[index].stop();
+			}
+		}
+	}
+
+	private boolean removeRouteeAt(int index) {
+		if (index < 0) {
+			return false;
+		}
+		Actor[] routees = this.routees;
+		Actor routee = routees[index];
+		if (routeeFactory != null) {
+			unlink(routee);
+		} else {
+			demonitor(routee);
+		}
+		Actor[] newRoutees = new Actor[routees.length - 1];
+		System.arraycopy(routees, 0, newRoutees, 0, index);
+		System.arraycopy(routees, index + 1, newRoutees, index, newRoutees.length - index);
+		setRoutees(newRoutees);
+		return true;
+	}
+
+	private int indexOf(Actor routee) {
+		Actor[] routees = this.routees;
+		for (int index = 0; index < routees.length; index++) {
+			if (routees[index] == routee) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private void setRoutees(Actor[] routees) {
+		this.routees = routees;
+		strategy.onRouteesChanged(routees);
+	}
+
+	private static Actor[] append(Actor[] routees, Actor routee) {
+		Actor[] newRoutees = Arrays.copyOf(routees, routees.length + 1);
+		newRoutees[routees.length] = routee;
+		return newRoutees;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.router;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+
+/**
+ * Selects the routee of a message. The methods are only called by the router
+ * actor, so a strategy instance should not be shared by routers.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public interface RoutingStrategy {
+
+	/**
+	 * Called when the routees of the router are changed.
+	 */
+	default void onRouteesChanged(Actor[] routees) {
+	}
+
+	/**
+	 * @param routees
+	 *            the routees of the router, not empty
+	 */
+	Actor select(Object message, Actor[] routees);
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class AffinityTest {
+
+	private static final int SCHEDULERS_SIZE = 4;
+
+	private static final class Player extends Actor {
+
+		private Player partner;
+		private int rounds;
+		private volatile Thread receiveThread;
+		private volatile Thread afterThread;
+		private final CountDownLatch idle = new CountDownLatch(1);
+
+		Player(ActorGroup group, int schedulerIndex) {
+			super(group, schedulerIndex);
+		}
+
+		Player(Actor other) {
+			super(other);
+		}
+
+		@Override
+		protected Receive createReceive() {
+			return new ReceiveBuilder().matchAny(message -> {
+				receiveThread = Thread.currentThread();
+				if (--rounds > 0) {
+					partner.send(message);
+				}
+			}).after(200, TimeUnit.MILLISECONDS, () -> {
+				afterThread = Thread.currentThread();
+				idle.countDown();
+			}).build();
+		}
+	}
+
+	/**
+	 * Passivates once while an actor of another scheduler floods it, so it
+	 * migrates at the end of the run which passivates it.
+	 */
+	private static final class Sleeper extends Actor {
+
+		private Actor flooder;
+		private final CountDownLatch flooded = new CountDownLatch(1);
+		private final AtomicInteger passivations = new AtomicInteger();
+		private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+		Sleeper(ActorGroup group, int schedulerIndex) {
+			super(group, schedulerIndex);
+		}
+
+		@Override
+		protected Duration passivationTimeout() {
+			return Duration.ofMillis(50);
+		}
+
+		@Override
+		protected Object prePassivate() throws Exception {
+			if (passivations.incrementAndGet() == 1) {
+				flooder.send(this);
+				assertTrue(flooded.await(10, TimeUnit.SECONDS));
+			}
+			return null;
+		}
+
+		@Override
+		protected Receive createReceive() {
+			return new ReceiveBuilder().matchAny(message -> received.add(Thread.currentThread())).build();
+		}
+	}
+
+	private List<ScheduledExecutorService> executors = new ArrayList<>();
+	private List<Thread> threads = new ArrayList<>();
+	private ActorGroup group;
+
+	@Before
+	public void setUp() throws Exception {
+		for (int index = 0; index < SCHEDULERS_SIZE; index++) {
+			ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+			executors.add(executor);
+			threads.add(executor.submit(Thread::currentThread).get());
+		}
+		group = new ActorGroup(executors, SCHEDULERS_SIZE);
+	}
+
+	@After
+	public void tearDown() {
+		for (ScheduledExecutorService executor : executors) {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPlacement() {
+		Player player = new Player(group, 2);
+		assertEquals(2, player.getSchedulerIndex());
+		assertEquals(2, new Player(player).getSchedulerIndex());
+	}
+
+	@Test
+	public void testAdaptiveAffinity() throws Exception {
+		group.setAdaptiveAffinity(true);
+		Player first = new Player(group, 0);
+		Player second = new Player(group, 1);
+		first.partner = second;
+		second.partner = first;
+		first.rounds = 10000;
+		second.rounds = 10000;
+		first.start();
+		second.start();
+		first.send("ball");
+		assertTrue(first.idle.await(10, TimeUnit.SECONDS));
+		assertTrue(second.idle.await(10, TimeUnit.SECONDS));
+		// the pair is co-located, and the idle timeouts moved with the actor
+		assertEquals(first.getSchedulerIndex(), second.getSchedulerIndex());
+		Thread thread = threads.get(first.getSchedulerIndex());
+		assertEquals(thread, first.receiveThread);
+		assertEquals(thread, second.receiveThread);
+		assertEquals(thread, first.afterThread);
+		assertEquals(thread, second.afterThread);
+	}
+
+	@Test
+	public void testMigratePassivated() throws Exception {
+		group.setAdaptiveAffinity(true);
+		Actor flooder = new Actor(group, 1) {
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().matchAny(message -> {
+					Sleeper sleeper = (Sleeper) message;
+					for (int index = 0; index < 100; index++) {
+						sleeper.send(index);
+					}
+					sleeper.flooded.countDown();
+				}).build();
+			}
+		};
+		Sleeper sleeper;
+		do {
+			// of two actors only the one with the larger identity hash code moves
+			sleeper = new Sleeper(group, 0);
+		} while (System.identityHashCode(sleeper) <= System.identityHashCode(flooder));
+		sleeper.flooder = flooder;
+		flooder.start();
+		sleeper.start();
+		Thread thread = threads.get(1);
+		for (int index = 0; index < 100; index++) {
+			assertEquals(thread, sleeper.received.poll(10, TimeUnit.SECONDS));
+		}
+		assertEquals(1, sleeper.getSchedulerIndex());
+		// passivates again, once per idle timeout, and is still activated by a message
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!sleeper.isPassivated() && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertTrue(sleeper.isPassivated());
+		Thread.sleep(200);
+		assertEquals(2, sleeper.passivations.get());
+		sleeper.send("wake");
+		assertEquals(thread, sleeper.received.poll(10, TimeUnit.SECONDS));
+		assertFalse(sleeper.isStopped());
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zxg.concurrent.actor.async.core.exception.MailboxFullException;
+import org.zxg.concurrent.actor.async.core.metrics.Metrics;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class BoundedMailboxTest {
+
+	private static final int CAPACITY = 2;
+	/**
+	 * The policy of the actor being created, since the mailbox is created by
+	 * the constructor of the super class.
+	 */
+	private static final ThreadLocal<OverflowPolicy> POLICY = new ThreadLocal<>();
+
+	private static final class Receiver extends Actor {
+
+		private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		Receiver(ActorGroup group) {
+			super(group);
+		}
+
+		@Override
+		protected int mailboxCapacity() {
+			return CAPACITY;
+		}
+
+		@Override
+		protected OverflowPolicy overflowPolicy() {
+			return POLICY.get();
+		}
+
+		@Override
+		protected Receive createReceive() {
+			return new ReceiveBuilder().matchAny(message -> received.add(message)).build();
+		}
+
+		/**
+		 * Keeps the actor busy until {@link #release} is counted down.
+		 */
+		void block() throws InterruptedException {
+			CountDownLatch blocked = new CountDownLatch(1);
+			execute(() -> {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException ex) {
+				}
+			});
+			assertTrue(blocked.await(10, TimeUnit.SECONDS));
+		}
+
+		List<Object> poll(int size) throws InterruptedException {
+			List<Object> messages = new ArrayList<>();
+			for (int index = 0; index < size; index++) {
+				Object message = received.poll(10, TimeUnit.SECONDS);
+				if (message == null) {
+					break;
+				}
+				messages.add(message);
+			}
+			return messages;
+		}
+	}
+
+	private ScheduledExecutorService executor;
+	private ActorGroup group;
+	private Metrics metrics = new Metrics();
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+		group = new ActorGroup(Collections.singletonList(executor), 1);
+		group.setInstrumentation(metrics);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private Receiver startActor(OverflowPolicy overflowPolicy) throws InterruptedException {
+		POLICY.set(overflowPolicy);
+		Receiver receiver;
+		try {
+			receiver = new Receiver(group);
+		} finally {
+			POLICY.remove();
+		}
+		receiver.start();
+		receiver.block();
+		return receiver;
+	}
+
+	private long sentMessages() {
+		return metrics.snapshot().sentMessages;
+	}
+
+	@Test
+	public void testDropNewest() throws Exception {
+		Receiver receiver = startActor(OverflowPolicy.DROP_NEWEST);
+		for (int index = 1; index <= 5; index++) {
+			receiver.send(index);
+		}
+		assertFalse(receiver.trySend(6));
+		assertEquals(CAPACITY, sentMessages());
+		receiver.release.countDown();
+		assertEquals(Arrays.asList((Object) 1, 2), receiver.poll(2));
+		assertNull(receiver.received.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+		Receiver receiver = startActor(OverflowPolicy.DROP_OLDEST);
+		for (int index = 1; index <= 5; index++) {
+			receiver.send(index);
+		}
+		assertTrue(receiver.trySend(6));
+		assertEquals(6, sentMessages());
+		receiver.release.countDown();
+		assertEquals(Arrays.asList((Object) 5, 6), receiver.poll(2));
+		assertNull(receiver.received.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testReject() throws Exception {
+		Receiver receiver = startActor(OverflowPolicy.REJECT);
+		receiver.send(1);
+		receiver.send(2);
+		try {
+			receiver.send(3);
+			fail();
+		} catch (MailboxFullException ex) {
+		}
+		assertFalse(receiver.trySend(4));
+		assertEquals(CAPACITY, sentMessages());
+		receiver.release.countDown();
+		assertEquals(Arrays.asList((Object) 1, 2), receiver.poll(2));
+		receiver.send(5);
+		assertEquals(Arrays.asList((Object) 5), receiver.poll(1));
+		assertEquals(3, sentMessages());
+	}
+
+	@Test
+	public void testAwait() throws Exception {
+		Receiver receiver = startActor(OverflowPolicy.AWAIT);
+		receiver.send(1);
+		receiver.send(2);
+		receiver.send(3);
+		CompletableFuture<Void> future = receiver.sendAsync(4);
+		assertFalse(receiver.trySend(5));
+		// the waiting messages are not counted yet
+		assertEquals(CAPACITY, sentMessages());
+		assertFalse(future.isDone());
+		receiver.release.countDown();
+		assertEquals(Arrays.asList((Object) 1, 2, 3, 4), receiver.poll(4));
+		future.get(10, TimeUnit.SECONDS);
+		assertEquals(4, sentMessages());
+	}
+
+	@Test
+	public void testAwaitStopped() throws Exception {
+		Receiver receiver = startActor(OverflowPolicy.AWAIT);
+		receiver.send(1);
+		receiver.send(2);
+		CompletableFuture<Void> future = receiver.sendAsync(3);
+		receiver.stop();
+		receiver.release.countDown();
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException ex) {
+		}
+		assertEquals(CAPACITY, sentMessages());
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class JournalTest {
+
+	private static final class Counter extends DurableActor {
+
+		private final boolean isSnapshotting;
+		private final List<Integer> received = new ArrayList<>();
+		private volatile long count;
+		private volatile long recoveredCount = -1;
+		private volatile CountDownLatch latch = new CountDownLatch(0);
+		private volatile long target;
+
+		Counter(ActorGroup group, Journal journal, String persistenceId, boolean isSnapshotting) {
+			super(group, journal, persistenceId);
+			this.isSnapshotting = isSnapshotting;
+		}
+
+		@Override
+		protected int snapshotInterval() {
+			return 10;
+		}
+
+		@Override
+		protected Object snapshotState() {
+			return isSnapshotting ? count : null;
+		}
+
+		@Override
+		protected void recoverState(Object state) {
+			count = (Long) state;
+			recoveredCount = count;
+		}
+
+		@Override
+		protected Receive createReceive() {
+			return new ReceiveBuilder().match(new TypeMatcher(Integer.class), message -> {
+				received.add((Integer) message);
+				count += (Integer) message;
+				if (count >= target) {
+					latch.countDown();
+				}
+			}).build();
+		}
+
+		boolean await(long target) throws InterruptedException {
+			CountDownLatch latch = new CountDownLatch(1);
+			this.target = target;
+			this.latch = latch;
+			execute(() -> {
+				if (count >= target) {
+					latch.countDown();
+				}
+			});
+			return latch.await(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private List<ScheduledExecutorService> executors = new ArrayList<>();
+
+	@After
+	public void tearDown() {
+		for (ScheduledExecutorService executor : executors) {
+			executor.shutdownNow();
+		}
+	}
+
+	private ActorGroup newGroup() {
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		executors.add(executor);
+		return new ActorGroup(Collections.singletonList(executor), 1);
+	}
+
+	private static List<Path> segments(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			return paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void testRecoverMessages() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		ActorGroup group = newGroup();
+		Journal journal = new Journal(group, directory, 4096);
+		Counter counter = new Counter(group, journal, "counter", false);
+		counter.start();
+		for (int index = 1; index <= 1000; index++) {
+			counter.send(index);
+		}
+		assertTrue(counter.await(500500));
+		journal.flush().get();
+		journal.close();
+
+		group = newGroup();
+		journal = new Journal(group, directory, 4096);
+		counter = new Counter(group, journal, "counter", false);
+		counter.start();
+		assertTrue(counter.await(500500));
+		assertEquals(500500, counter.count);
+		counter.send(1);
+		assertTrue(counter.await(500501));
+		journal.close();
+	}
+
+	@Test
+	public void testRecoverSnapshot() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		ActorGroup group = newGroup();
+		Journal journal = new Journal(group, directory, 1024);
+		Counter counter = new Counter(group, journal, "counter", true);
+		counter.start();
+		for (int index = 0; index < 2000; index++) {
+			counter.send(1);
+		}
+		assertTrue(counter.await(2000));
+		// the segments before the latest snapshot are deleted once it is flushed
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		do {
+			journal.flush().get();
+		} while (segments(directory).size() >= 5 && System.nanoTime() < deadline);
+		assertTrue(segments(directory).size() < 5);
+		journal.close();
+
+		group = newGroup();
+		journal = new Journal(group, directory, 1024);
+		counter = new Counter(group, journal, "counter", true);
+		counter.start();
+		assertTrue(counter.await(2000));
+		assertEquals(2000, counter.count);
+		assertTrue(counter.recoveredCount > 0);
+		assertTrue(counter.received.size() < 2000);
+		journal.close();
+	}
+
+	@Test
+	public void testTruncatedTail() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		ActorGroup group = newGroup();
+		Journal journal = new Journal(group, directory, 1 << 16);
+		Counter counter = new Counter(group, journal, "counter", false);
+		counter.start();
+		for (int index = 0; index < 100; index++) {
+			counter.send(1);
+		}
+		assertTrue(counter.await(100));
+		journal.flush().get();
+		journal.close();
+
+		// cuts the segment in the middle of the 61st record
+		List<Path> segments = segments(directory);
+		assertEquals(1, segments.size());
+		long offset = 0;
+		try (DataInputStream input = new DataInputStream(Files.newInputStream(segments.get(0)))) {
+			for (int index = 0; index < 60; index++) {
+				int bodySize = input.readInt();
+				input.skipBytes(4 + bodySize);
+				offset += 8 + bodySize;
+			}
+		}
+		try (RandomAccessFile file = new RandomAccessFile(segments.get(0).toFile(), "rw")) {
+			file.setLength(offset + 10);
+		}
+
+		group = newGroup();
+		journal = new Journal(group, directory, 1 << 16);
+		counter = new Counter(group, journal, "counter", false);
+		counter.start();
+		assertTrue(counter.await(60));
+		counter.send(1);
+		assertTrue(counter.await(61));
+		assertEquals(61, counter.received.size());
+		journal.flush().get();
+		journal.close();
+
+		// the records after the broken segment are recovered too
+		group = newGroup();
+		journal = new Journal(group, directory, 1 << 16);
+		counter = new Counter(group, journal, "counter", false);
+		counter.start();
+		assertTrue(counter.await(61));
+		assertEquals(61, counter.count);
+		journal.close();
+	}
+
+	@Test
+	public void testLongPersistenceId() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		StringBuilder builder = new StringBuilder();
+		for (int index = 0; index < Journal.MAX_PERSISTENCE_ID_LENGTH; index++) {
+			builder.append('x');
+		}
+		String persistenceId = builder.toString();
+		ActorGroup group = newGroup();
+		Journal journal = new Journal(group, directory);
+		Counter counter = new Counter(group, journal, persistenceId, false);
+		counter.start();
+		counter.send(7);
+		assertTrue(counter.await(7));
+		journal.flush().get();
+		try {
+			new Counter(group, journal, persistenceId + "x", false);
+			throw new AssertionError();
+		} catch (IllegalArgumentException ex) {
+		}
+		journal.close();
+
+		group = newGroup();
+		journal = new Journal(group, directory);
+		counter = new Counter(group, journal, persistenceId, false);
+		counter.start();
+		assertTrue(counter.await(7));
+		assertEquals(7, counter.count);
+		journal.close();
+	}
+}
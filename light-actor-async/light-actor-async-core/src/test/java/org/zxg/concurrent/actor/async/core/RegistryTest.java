@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RegistryTest {
+
+	private static final class Idle extends Actor {
+
+		Idle(ActorGroup group) {
+			super(group);
+		}
+
+		@Override
+		protected Receive createReceive() {
+			return new ReceiveBuilder().matchAny(message -> {
+			}).build();
+		}
+	}
+
+	private ScheduledExecutorService executor;
+	private ExecutorService callers;
+	private ActorGroup group;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+		callers = Executors.newFixedThreadPool(2);
+		group = new ActorGroup(Collections.singletonList(executor), 1);
+	}
+
+	@After
+	public void tearDown() {
+		callers.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testWhereisOrCreateRace() throws Exception {
+		// both factories run at once, which a factory called under the lock would not
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		List<Actor> created = Collections.synchronizedList(new ArrayList<>());
+		List<Future<Actor>> results = new ArrayList<>();
+		for (int index = 0; index < 2; index++) {
+			results.add(callers.submit(() -> group.whereisOrCreate("/sessions/1", name -> {
+				Actor actor = new Idle(group);
+				created.add(actor);
+				try {
+					barrier.await(10, TimeUnit.SECONDS);
+				} catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+				return actor;
+			})));
+		}
+		Actor winner = results.get(0).get(10, TimeUnit.SECONDS);
+		assertSame(winner, results.get(1).get(10, TimeUnit.SECONDS));
+		assertSame(winner, group.whereis("/sessions/1"));
+		assertFalse(winner.isStopped());
+		assertEquals(2, created.size());
+		Actor loser = created.get(0) == winner ? created.get(1) : created.get(0);
+		assertTrue(loser.isStopped());
+		assertNull(loser.getName());
+		assertEquals(Collections.singletonList("/sessions/1"), list(group.registered("/sessions")));
+	}
+
+	@Test
+	public void testRegisteredChildren() {
+		for (String name : new String[] { "/sessions", "/sessions/1", "/sessions/1/user", "/sessions/2/user" }) {
+			Actor actor = new Idle(group);
+			actor.start();
+			group.register(name, actor);
+		}
+		assertEquals(Collections.singletonList("/sessions"), list(group.registered("/")));
+		// only the direct children, even under a path which is not registered
+		assertEquals(Collections.singletonList("/sessions/1"), list(group.registered("/sessions")));
+		assertEquals(Collections.singletonList("/sessions/2/user"), list(group.registered("/sessions/2")));
+	}
+
+	private static List<String> list(Iterable<String> names) {
+		List<String> list = new ArrayList<>();
+		names.forEach(list::add);
+		Collections.sort(list);
+		return list;
+	}
+}
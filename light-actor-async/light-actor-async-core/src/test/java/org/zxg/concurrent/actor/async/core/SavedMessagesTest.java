@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zxg.concurrent.actor.async.core.metrics.ActorInstrument;
+import org.zxg.concurrent.actor.async.core.metrics.Instrumentation;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class SavedMessagesTest {
+
+	private static final int SAVED_SIZE = 2000;
+
+	/**
+	 * Receives the strings and saves everything else.
+	 */
+	private static final class Selective extends Actor {
+
+		private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+		Selective(ActorGroup group) {
+			super(group);
+		}
+
+		@Override
+		protected Receive createReceive() {
+			return new ReceiveBuilder().match(message -> message instanceof String, message -> received.add(message))
+					.build();
+		}
+	}
+
+	private static final class RunCounter implements Instrumentation {
+
+		private final AtomicInteger runs = new AtomicInteger();
+
+		@Override
+		public void attach(ActorGroup group, int schedulersSize) {
+		}
+
+		@Override
+		public ActorInstrument instrument(Actor actor) {
+			return null;
+		}
+
+		@Override
+		public void onSchedule(int schedulerIndex) {
+		}
+
+		@Override
+		public void onRun(int schedulerIndex) {
+			runs.incrementAndGet();
+		}
+	}
+
+	private ScheduledExecutorService executor;
+	private ActorGroup group;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+		group = new ActorGroup(Collections.singletonList(executor), 1);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRescanIsNotThroughput() throws Exception {
+		RunCounter counter = new RunCounter();
+		group.setInstrumentation(counter);
+		Selective actor = new Selective(group);
+		actor.start();
+		for (int index = 0; index < SAVED_SIZE; index++) {
+			actor.send(index);
+		}
+		actor.send("first");
+		actor.send("ping");
+		assertEquals("first", actor.received.poll(10, TimeUnit.SECONDS));
+		assertEquals("ping", actor.received.poll(10, TimeUnit.SECONDS));
+		assertEquals(SAVED_SIZE, actor.getSavedMessagesSize());
+		// every received message scans all the saved messages again
+		int runs = counter.runs.get();
+		actor.send("second");
+		actor.send("ping");
+		assertEquals("second", actor.received.poll(10, TimeUnit.SECONDS));
+		assertEquals("ping", actor.received.poll(10, TimeUnit.SECONDS));
+		int rescanRuns = counter.runs.get() - runs;
+		assertTrue("runs: " + rescanRuns, rescanRuns <= SAVED_SIZE / group.getThroughput() / 4);
+	}
+}
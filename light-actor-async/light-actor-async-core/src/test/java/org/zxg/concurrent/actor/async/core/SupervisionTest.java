@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class SupervisionTest {
+
+	private static final int SCHEDULERS_SIZE = 4;
+
+	private List<ScheduledExecutorService> executors = new ArrayList<>();
+	private ActorGroup group;
+
+	@Before
+	public void setUp() {
+		for (int index = 0; index < SCHEDULERS_SIZE; index++) {
+			executors.add(Executors.newSingleThreadScheduledExecutor());
+		}
+		group = new ActorGroup(executors, SCHEDULERS_SIZE);
+	}
+
+	@After
+	public void tearDown() {
+		for (ScheduledExecutorService executor : executors) {
+			executor.shutdownNow();
+		}
+	}
+
+	private static final class Receiver extends Actor {
+
+		private final Consumer<Object> handler;
+
+		Receiver(ActorGroup group, Consumer<Object> handler) {
+			super(group);
+			this.handler = handler;
+		}
+
+		@Override
+		protected Receive createReceive() {
+			// called by the constructor of the super class, before the handler is set
+			return new ReceiveBuilder().matchAny(message -> handler.accept(message)).build();
+		}
+	}
+
+	private Actor startActor(Consumer<Object> handler) {
+		Actor actor = new Receiver(group, handler);
+		actor.start();
+		return actor;
+	}
+
+	@Test
+	public void testStopPropagation() throws Exception {
+		int size = 20000;
+		Actor supervisor = startActor(message -> {
+		});
+		CountDownLatch downs = new CountDownLatch(size);
+		AtomicInteger otherDowns = new AtomicInteger();
+		List<Actor> workers = new ArrayList<>(size);
+		List<Actor> watchers = new ArrayList<>(size);
+		for (int index = 0; index < size; index++) {
+			Actor worker = startActor(message -> {
+			});
+			worker.link(supervisor);
+			workers.add(worker);
+			Actor watcher = startActor(message -> {
+				if (message instanceof DownMessage && ((DownMessage) message).from == supervisor
+						&& "shutdown".equals(((DownMessage) message).reason)) {
+					downs.countDown();
+				} else {
+					otherDowns.incrementAndGet();
+				}
+			});
+			watcher.monitor(supervisor);
+			watchers.add(watcher);
+		}
+		supervisor.stop("shutdown");
+		assertTrue(downs.await(10, TimeUnit.SECONDS));
+		assertEquals(0, otherDowns.get());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		for (Actor worker : workers) {
+			while (!worker.isStopped() && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			assertTrue(worker.isStopped());
+		}
+		for (Actor watcher : watchers) {
+			assertTrue(!watcher.isStopped());
+		}
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+import org.zxg.concurrent.actor.async.core.DownMessage;
+import org.zxg.concurrent.actor.async.core.ExitMessage;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.async.core.exception.CodecException;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class CodecRegistryTest {
+
+	private static final class Point {
+
+		final int x;
+		final int y;
+
+		Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	private static final class Name {
+
+		final String value;
+
+		Name(String value) {
+			this.value = value;
+		}
+	}
+
+	private static final class Ping implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		int count;
+		Object extra;
+		long[] values;
+	}
+
+	private ScheduledExecutorService executor;
+	private ActorGroup group;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+		group = new ActorGroup(Collections.singletonList(executor), 1);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static Object roundTrip(CodecRegistry writer, CodecRegistry reader, Object value) {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		new ByteBufferOutput(writer, buffer).writeObject(value);
+		buffer.flip();
+		ByteBufferInput input = new ByteBufferInput(reader, buffer);
+		Object result = input.readObject();
+		assertEquals(0, input.remaining());
+		return result;
+	}
+
+	private static Object roundTrip(CodecRegistry registry, Object value) {
+		return roundTrip(registry, registry, value);
+	}
+
+	@Test
+	public void testBuiltIns() {
+		CodecRegistry registry = new CodecRegistry();
+		assertNull(roundTrip(registry, null));
+		Object[] values = { true, (byte) -3, (short) 300, 'z', -7, Long.MIN_VALUE, 1.5f, -2.25, "",
+				"héllo 世界 😀" };
+		for (Object value : values) {
+			assertEquals(value, roundTrip(registry, value));
+		}
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) roundTrip(registry, new byte[] { 1, 2, 3 }));
+	}
+
+	@Test
+	public void testRegisteredCodec() {
+		CodecRegistry registry = new CodecRegistry();
+		registry.register(32, Point.class, new Codec<Point>() {
+			@Override
+			public void encode(Point value, CodecOutput out) {
+				out.writeVarInt(value.x);
+				out.writeVarInt(value.y);
+			}
+
+			@Override
+			public Point decode(CodecInput in) {
+				return new Point(in.readVarInt(), in.readVarInt());
+			}
+		});
+		Point point = (Point) roundTrip(registry, new Point(3, 1 << 20));
+		assertEquals(3, point.x);
+		assertEquals(1 << 20, point.y);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReservedId() {
+		new CodecRegistry().register(CodecRegistry.RESERVED_IDS_SIZE - 1, Point.class, new Codec<Point>() {
+			@Override
+			public void encode(Point value, CodecOutput out) {
+			}
+
+			@Override
+			public Point decode(CodecInput in) {
+				return null;
+			}
+		});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLargeId() {
+		new CodecRegistry().register(CodecRegistry.MAX_ID + 1, Point.class, new Codec<Point>() {
+			@Override
+			public void encode(Point value, CodecOutput out) {
+			}
+
+			@Override
+			public Point decode(CodecInput in) {
+				return null;
+			}
+		});
+	}
+
+	@Test
+	public void testNotificationFromNonActor() {
+		CodecRegistry registry = new CodecRegistry();
+		// a down message whose sender is a string
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		ByteBufferOutput output = new ByteBufferOutput(registry, buffer);
+		output.writeVarInt(11);
+		output.writeObject("actor");
+		output.writeObject(null);
+		buffer.flip();
+		try {
+			new ByteBufferInput(registry, buffer).readObject();
+			fail();
+		} catch (CodecException ex) {
+		}
+		assertNull(((ExitMessage) roundTrip(registry, new ExitMessage(null, "normal"))).from);
+	}
+
+	@Test
+	public void testActorReferences() {
+		Actor actor = new Actor(group) {
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().matchAny(message -> {
+				}).build();
+			}
+		};
+		actor.start();
+		group.register("target", actor);
+		CodecRegistry registry = new CodecRegistry();
+		registry.setActorReferences(new ActorReferences<Name>() {
+			@Override
+			public Class<Name> referenceType() {
+				return Name.class;
+			}
+
+			@Override
+			public Name referenceOf(Actor actor) {
+				return new Name(actor.getName());
+			}
+
+			@Override
+			public Actor actorOf(Name reference) {
+				return group.whereis(reference.value);
+			}
+		}, new Codec<Name>() {
+			@Override
+			public void encode(Name value, CodecOutput out) {
+				out.writeString(value.value);
+			}
+
+			@Override
+			public Name decode(CodecInput in) {
+				return new Name(in.readString());
+			}
+		});
+		assertSame(actor, roundTrip(registry, actor));
+		DownMessage down = (DownMessage) roundTrip(registry, new DownMessage(actor, "crashed"));
+		assertSame(actor, down.from);
+		assertEquals("crashed", down.reason);
+		ExitMessage exit = (ExitMessage) roundTrip(registry, new ExitMessage(actor, null));
+		assertSame(actor, exit.from);
+		assertNull(exit.reason);
+		actor.stop();
+	}
+
+	@Test
+	public void testUnknownClass() {
+		try {
+			roundTrip(new CodecRegistry(), new Point(1, 2));
+			fail();
+		} catch (CodecException ex) {
+		}
+		// no implicit fallback to the Java serialization
+		try {
+			roundTrip(new CodecRegistry(), new Ping());
+			fail();
+		} catch (CodecException ex) {
+		}
+	}
+
+	@Test
+	public void testUnknownId() {
+		CodecRegistry registry = new CodecRegistry();
+		for (byte[] bytes : new byte[][] { { 100 }, { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F } }) {
+			try {
+				new ByteBufferInput(registry, ByteBuffer.wrap(bytes)).readObject();
+				fail();
+			} catch (CodecException ex) {
+			}
+		}
+	}
+
+	@Test
+	public void testSerializableFallback() {
+		CodecRegistry registry = CodecRegistry.withSerializableFallback(Ping.class.getName()::equals);
+		Ping ping = new Ping();
+		ping.count = 42;
+		ping.extra = 7L;
+		ping.values = new long[] { 1, 2 };
+		Ping result = (Ping) roundTrip(registry, ping);
+		assertEquals(42, result.count);
+		assertEquals(7L, result.extra);
+		assertArrayEquals(new long[] { 1, 2 }, result.values);
+	}
+
+	@Test
+	public void testSerializableFallbackRejects() {
+		CodecRegistry registry = CodecRegistry.withSerializableFallback(Ping.class.getName()::equals);
+		try {
+			roundTrip(registry, new ArrayList<>());
+			fail();
+		} catch (CodecException ex) {
+		}
+		// a class in the stream which the reader does not allow
+		Ping ping = new Ping();
+		ping.extra = new ArrayList<>();
+		try {
+			roundTrip(CodecRegistry.withSerializableFallback(name -> true), registry, ping);
+			fail();
+		} catch (CodecException ex) {
+			assertTrue(ex.getCause() instanceof InvalidClassException);
+		}
+		// a reader without the fallback
+		try {
+			roundTrip(registry, new CodecRegistry(), new Ping());
+			fail();
+		} catch (CodecException ex) {
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.core.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+import org.zxg.concurrent.actor.async.core.DownMessage;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RouterTest {
+
+	private static final class Receiver extends Actor {
+
+		private final Consumer<Object> handler;
+
+		Receiver(ActorGroup group, Consumer<Object> handler) {
+			super(group);
+			this.handler = handler;
+		}
+
+		@Override
+		protected Receive createReceive() {
+			// called by the constructor of the super class, before the handler is set
+			return new ReceiveBuilder().matchAny(message -> handler.accept(message)).build();
+		}
+	}
+
+	private ScheduledExecutorService executor;
+	private ActorGroup group;
+	private BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+	private AtomicInteger created = new AtomicInteger();
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+		group = new ActorGroup(Collections.singletonList(executor), 1);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private Actor startActor(Consumer<Object> handler) {
+		Actor actor = new Receiver(group, handler);
+		actor.start();
+		return actor;
+	}
+
+	/**
+	 * Creates routees which pass the messages on, and stop when they receive
+	 * "crash".
+	 */
+	private Router startPool(int poolSize) {
+		Router router = new Router(group, new RoundRobinStrategy(), () -> {
+			created.incrementAndGet();
+			Actor[] routee = new Actor[1];
+			routee[0] = new Receiver(group, message -> {
+				if ("crash".equals(message)) {
+					routee[0].stop("crashed");
+				} else {
+					received.add(message);
+				}
+			});
+			return routee[0];
+		}, poolSize);
+		router.start();
+		return router;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	public void testRoute() throws Exception {
+		Router router = startPool(2);
+		await(() -> router.getRoutees().length == 2);
+		for (int index = 0; index < 10; index++) {
+			router.send(index);
+		}
+		router.send(new Broadcast("all"));
+		int all = 0;
+		for (int index = 0; index < 12; index++) {
+			Object message = received.poll(10, TimeUnit.SECONDS);
+			if ("all".equals(message)) {
+				all++;
+			}
+		}
+		assertEquals(2, all);
+	}
+
+	@Test
+	public void testReplaceRoutee() throws Exception {
+		Router router = startPool(2);
+		await(() -> router.getRoutees().length == 2);
+		Actor routee = router.getRoutees()[0];
+		routee.stop("crashed");
+		await(() -> routee.isStopped() && router.getRoutees().length == 2
+				&& !Arrays.asList(router.getRoutees()).contains(routee));
+		assertEquals(3, created.get());
+		assertFalse(router.isStopped());
+	}
+
+	@Test
+	public void testRestartLimit() throws Exception {
+		Router router = startPool(1);
+		router.setRestartLimit(2, 1, TimeUnit.MINUTES);
+		BlockingQueue<Object> downs = new LinkedBlockingQueue<>();
+		startActor(downs::add).monitor(router);
+		// the third replacement exceeds the limit
+		for (int restart = 0; restart < 3; restart++) {
+			await(() -> router.getRoutees().length == 1);
+			Actor routee = router.getRoutees()[0];
+			router.send("crash");
+			await(() -> router.isStopped() || (router.getRoutees().length == 1 && router.getRoutees()[0] != routee));
+		}
+		DownMessage down = (DownMessage) downs.poll(10, TimeUnit.SECONDS);
+		assertTrue(down.from == router);
+		assertEquals("crashed", down.reason);
+		assertEquals(3, created.get());
+	}
+
+	@Test
+	public void testExitOfOtherActor() throws Exception {
+		Router router = startPool(2);
+		await(() -> router.getRoutees().length == 2);
+		Actor[] routees = router.getRoutees();
+		BlockingQueue<Object> downs = new LinkedBlockingQueue<>();
+		startActor(downs::add).monitor(router);
+		Actor other = startActor(message -> {
+		});
+		other.link(router);
+		other.stop("failed");
+		DownMessage down = (DownMessage) downs.poll(10, TimeUnit.SECONDS);
+		assertTrue(down.from == router);
+		assertEquals("failed", down.reason);
+		// the exit is not routed, and the routees stop with the router
+		for (Actor routee : routees) {
+			await(routee::isStopped);
+		}
+		assertNull(received.poll());
+	}
+
+	@Test
+	public void testDownOfOtherActor() throws Exception {
+		Router router = startPool(1);
+		await(() -> router.getRoutees().length == 1);
+		Actor other = startActor(message -> {
+		});
+		router.monitor(other);
+		other.stop("failed");
+		router.send("after");
+		assertEquals("after", received.poll(10, TimeUnit.SECONDS));
+		assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+		assertFalse(router.isStopped());
+	}
+}
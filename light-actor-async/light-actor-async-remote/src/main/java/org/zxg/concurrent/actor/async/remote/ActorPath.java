@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+
+/**
+ * Address of a registered actor of a remote node, which is what a reference to
+ * an actor becomes when it is sent to another node.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class ActorPath implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public final String host;
+	public final int port;
+	public final String name;
+
+	public ActorPath(String host, int port, String name) {
+		if (host == null || name == null) {
+			throw new NullPointerException();
+		}
+		this.host = host;
+		this.port = port;
+		this.name = name;
+	}
+
+	public InetSocketAddress getAddress() {
+		return new InetSocketAddress(host, port);
+	}
+
+	@Override
+	public int hashCode() {
+		return (host.hashCode() * 31 + port) * 31 + name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ActorPath)) {
+			return false;
+		}
+		ActorPath other = (ActorPath) obj;
+		return port == other.port && host.equals(other.host) && name.equals(other.name);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ActorPath [host=");
+		builder.append(host);
+		builder.append(", port=");
+		builder.append(port);
+		builder.append(", name=");
+		builder.append(name);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import org.zxg.concurrent.actor.async.core.codec.CodecInput;
+import org.zxg.concurrent.actor.async.core.codec.CodecRegistry;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reads from a pooled buffer between its reader index and its writer index.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class ByteBufInput extends CodecInput {
+
+	private final ByteBuf buffer;
+
+	ByteBufInput(CodecRegistry registry, ByteBuf buffer) {
+		super(registry);
+		this.buffer = buffer;
+	}
+
+	@Override
+	public byte readByte() {
+		return buffer.readByte();
+	}
+
+	@Override
+	public short readShort() {
+		return buffer.readShort();
+	}
+
+	@Override
+	public int readInt() {
+		return buffer.readInt();
+	}
+
+	@Override
+	public long readLong() {
+		return buffer.readLong();
+	}
+
+	@Override
+	public void readBytes(byte[] bytes, int offset, int length) {
+		buffer.readBytes(bytes, offset, length);
+	}
+
+	@Override
+	public int remaining() {
+		return buffer.readableBytes();
+	}
+}
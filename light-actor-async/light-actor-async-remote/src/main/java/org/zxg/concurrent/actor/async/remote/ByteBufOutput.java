@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import org.zxg.concurrent.actor.async.core.codec.CodecOutput;
+import org.zxg.concurrent.actor.async.core.codec.CodecRegistry;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Writes into a pooled buffer at its writer index, growing it as needed.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class ByteBufOutput extends CodecOutput {
+
+	private final ByteBuf buffer;
+
+	ByteBufOutput(CodecRegistry registry, ByteBuf buffer) {
+		super(registry);
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void writeByte(int value) {
+		buffer.writeByte(value);
+	}
+
+	@Override
+	public void writeShort(int value) {
+		buffer.writeShort(value);
+	}
+
+	@Override
+	public void writeInt(int value) {
+		buffer.writeInt(value);
+	}
+
+	@Override
+	public void writeLong(long value) {
+		buffer.writeLong(value);
+	}
+
+	@Override
+	public void writeBytes(byte[] bytes, int offset, int length) {
+		buffer.writeBytes(bytes, offset, length);
+	}
+
+	@Override
+	public int position() {
+		return buffer.writerIndex();
+	}
+
+	@Override
+	public void writeInt(int position, int value) {
+		buffer.setInt(position, value);
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import org.zxg.concurrent.actor.async.core.codec.CodecRegistry;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Encodes the messages with a codec registry straight into the frames, where
+ * the actors referenced by a message are encoded as their paths.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class CodecMessageSerializer implements MessageSerializer {
+
+	private CodecRegistry registry;
+
+	public CodecMessageSerializer(CodecRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public void serialize(Object message, ByteBuf out) {
+		registry.encode(message, new ByteBufOutput(registry, out));
+	}
+
+	@Override
+	public Object deserialize(ByteBuf in) {
+		return registry.decode(new ByteBufInput(registry, in));
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+/**
+ * Outgoing connection to a remote node, shared by the proxies of the actors of
+ * that node. The frames are queued in order and written by one task on the
+ * event loop of the channel, which writes all the queued frames and flushes
+ * them once, and the writes never wait for the previous ones to complete. The
+ * frames queued before the connection is established are written when it is.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class Connection implements Runnable {
+
+	final InetSocketAddress address;
+	private RemoteNode node;
+	private volatile Channel channel;
+	private volatile boolean isClosed;
+	private Queue<ByteBuf> frames = new ConcurrentLinkedQueue<>();
+	private AtomicBoolean isWriteScheduled = new AtomicBoolean(false);
+	private ConcurrentMap<String, RemoteActor> proxies = new ConcurrentHashMap<>();
+
+	public Connection(RemoteNode node, InetSocketAddress address) {
+		this.node = node;
+		this.address = address;
+	}
+
+	/**
+	 * Returns the started proxy of the remote actor, which is stopped if the
+	 * connection is closed.
+	 */
+	public RemoteActor proxyOf(String name) {
+		RemoteActor proxy;
+		while (true) {
+			RemoteActor oldProxy = proxies.get(name);
+			if (oldProxy != null && !oldProxy.isStopped()) {
+				proxy = oldProxy;
+				break;
+			}
+			// started out of the map, the loser of a race is stopped
+			RemoteActor newProxy = new RemoteActor(node, this,
+					new ActorPath(address.getHostString(), address.getPort(), name));
+			newProxy.start();
+			if (oldProxy == null ? proxies.putIfAbsent(name, newProxy) == null
+					: proxies.replace(name, oldProxy, newProxy)) {
+				proxy = newProxy;
+				break;
+			}
+			newProxy.stop();
+		}
+		if (isClosed) {
+			proxy.stop();
+		}
+		return proxy;
+	}
+
+	public void send(String name, List<Object> messages) {
+		List<ByteBuf> encodedFrames = node.encode(name, messages);
+		if (encodedFrames.isEmpty()) {
+			return;
+		}
+		frames.addAll(encodedFrames);
+		if (isClosed) {
+			releaseFrames();
+			return;
+		}
+		scheduleWrite();
+	}
+
+	public void onConnected(Channel channel) {
+		this.channel = channel;
+		if (isClosed) {
+			channel.close();
+			return;
+		}
+		scheduleWrite();
+	}
+
+	public void onClosed(Object reason) {
+		synchronized (this) {
+			if (isClosed) {
+				return;
+			}
+			isClosed = true;
+		}
+		Channel channel = this.channel;
+		if (channel != null) {
+			channel.close();
+		}
+		releaseFrames();
+		node.onClosed(this);
+		for (RemoteActor proxy : proxies.values()) {
+			proxy.stop(reason);
+		}
+	}
+
+	@Override
+	public void run() {
+		isWriteScheduled.set(false);
+		Channel channel = this.channel;
+		ByteBuf frame;
+		while ((frame = frames.poll()) != null) {
+			channel.write(frame, channel.voidPromise());
+		}
+		channel.flush();
+	}
+
+	private void scheduleWrite() {
+		Channel channel = this.channel;
+		if (channel != null && isWriteScheduled.compareAndSet(false, true)) {
+			channel.eventLoop().execute(this);
+		}
+	}
+
+	private void releaseFrames() {
+		ByteBuf frame;
+		while ((frame = frames.poll()) != null) {
+			frame.release();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import java.io.IOException;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.remote.exception.MessageDeserializationException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * Delivers the messages of the incoming frames to the registered actors. The
+ * messages to an actor which is not registered are dropped like the messages
+ * sent to a stopped actor, and a message which can not be deserialized is
+ * dropped and reported to the uncaught exception handler of the event loop. A
+ * malformed frame closes the connection.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class InboundHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+	private RemoteNode node;
+
+	public InboundHandler(RemoteNode node) {
+		this.node = node;
+	}
+
+	@Override
+	protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) throws Exception {
+		if (frame.readByte() != RemoteNode.SEND) {
+			ctx.close();
+			return;
+		}
+		String name = RemoteNode.readString(frame);
+		Actor actor = node.group.whereis(name);
+		int size = frame.readInt();
+		if (size < 0) {
+			throw new MessageDeserializationException("The number of the messages to \"" + name + "\" is negative.");
+		}
+		for (int index = 0; index < size; index++) {
+			int length = frame.readInt();
+			if (length < 0 || length > frame.readableBytes()) {
+				throw new MessageDeserializationException(
+						"The length of a message to \"" + name + "\" is out of the frame.");
+			}
+			ByteBuf message = frame.readSlice(length);
+			if (actor == null) {
+				continue;
+			}
+			Object value;
+			try {
+				value = node.serializer.deserialize(message);
+			} catch (Exception ex) {
+				RemoteNode.report(new MessageDeserializationException(
+						"Failed to deserialize a message to \"" + name + "\".", ex));
+				continue;
+			}
+			try {
+				actor.send(value);
+			} catch (RuntimeException ex) {
+				// a null message or a full mailbox
+				RemoteNode.report(ex);
+			}
+		}
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		// a closed socket is not worth a report
+		if (!(cause instanceof IOException)) {
+			RemoteNode.report(cause);
+		}
+		ctx.close();
+	}
+}
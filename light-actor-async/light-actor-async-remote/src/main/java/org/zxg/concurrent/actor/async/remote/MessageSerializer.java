@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Writes the messages sent to remote actors into the frames and reads them
+ * back, straight from the pooled buffers of the connections.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public interface MessageSerializer {
+
+	void serialize(Object message, ByteBuf out) throws Exception;
+
+	/**
+	 * Reads a message from the buffer, which holds exactly the bytes written by
+	 * {@link #serialize(Object, ByteBuf)}.
+	 */
+	Object deserialize(ByteBuf in) throws Exception;
+}
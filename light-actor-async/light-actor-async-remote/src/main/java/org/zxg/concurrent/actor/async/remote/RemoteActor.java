@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+
+/**
+ * Local proxy of a registered actor of a remote node. The messages sent to it
+ * are forwarded in batches, one frame for the messages queued since the last
+ * one. It stops when its connection is closed, so monitoring it tells when
+ * the remote actor can not be reached any more. A message which can not be
+ * serialized is dropped and reported to the uncaught exception handler, and
+ * the proxy goes on with the others.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public final class RemoteActor extends Actor {
+
+	private static final int MAX_BATCH = 256;
+
+	private Connection connection;
+	private ActorPath path;
+
+	RemoteActor(RemoteNode node, Connection connection, ActorPath path) {
+		super(node.group);
+		this.connection = connection;
+		this.path = path;
+	}
+
+	public ActorPath getPath() {
+		return path;
+	}
+
+	@Override
+	protected Receive createReceive() {
+		return new ReceiveBuilder().matchBatch(message -> true, MAX_BATCH, messages -> {
+			connection.send(path.name, messages);
+		}).build();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("RemoteActor [path=");
+		builder.append(path);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+import org.zxg.concurrent.actor.async.core.codec.ActorReferences;
+import org.zxg.concurrent.actor.async.core.codec.Codec;
+import org.zxg.concurrent.actor.async.core.codec.CodecInput;
+import org.zxg.concurrent.actor.async.core.codec.CodecOutput;
+import org.zxg.concurrent.actor.async.core.codec.CodecRegistry;
+import org.zxg.concurrent.actor.async.remote.exception.MessageSerializationException;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * Lets the actors of a group and the actors of the groups in other processes
+ * send messages to each other's registered actors by name, over TCP.
+ * <p>
+ * {@link #actorOf(InetSocketAddress, String)} returns a proxy which is used
+ * like a local actor. Every remote node gets one connection, which is shared
+ * by its proxies, and the messages sent to a proxy are written in batches
+ * without waiting for the previous writes. The messages are encoded with a
+ * codec registry unless another serializer is given, and the actors
+ * referenced by a message are sent as their paths, so a registered actor can
+ * be replied to from the other node; this needs the node to be bound to the
+ * address the other nodes connect to.
+ * <p>
+ * A frame is its length, the kind, the name of the target actor, the number of
+ * messages and every message after its own length.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RemoteNode implements AutoCloseable {
+
+	public static final int MAX_FRAME_LENGTH = 64 << 20;
+	/**
+	 * The longest name of a remote actor in UTF-8 bytes, since its length is
+	 * written in two bytes.
+	 */
+	public static final int MAX_NAME_LENGTH = 0xFFFF;
+
+	static final byte SEND = 1;
+
+	private static final int MAX_CONNECT_ATTEMPTS = 3;
+
+	final ActorGroup group;
+	final MessageSerializer serializer;
+	private NioEventLoopGroup eventLoopGroup;
+	private Channel serverChannel;
+	private ChannelGroup acceptedChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+	private volatile InetSocketAddress localAddress;
+	private ConcurrentMap<InetSocketAddress, Connection> connections = new ConcurrentHashMap<>();
+
+	/**
+	 * Uses a registry of the built-in codecs only, which never falls back to
+	 * the Java serialization for the bytes of the other nodes.
+	 */
+	public RemoteNode(ActorGroup group, NioEventLoopGroup eventLoopGroup) {
+		this(group, eventLoopGroup, new CodecRegistry());
+	}
+
+	/**
+	 * @param registry
+	 *            the codecs of the messages, which should register the same
+	 *            classes with the same ids in all the nodes, and whose actor
+	 *            references are set to the paths of this node; a registry
+	 *            with the serialization fallback should only allow the classes
+	 *            which are safe to deserialize from any peer
+	 */
+	public RemoteNode(ActorGroup group, NioEventLoopGroup eventLoopGroup, CodecRegistry registry) {
+		this.group = group;
+		this.eventLoopGroup = eventLoopGroup;
+		registry.setActorReferences(new ActorReferences<ActorPath>() {
+			@Override
+			public Class<ActorPath> referenceType() {
+				return ActorPath.class;
+			}
+
+			@Override
+			public ActorPath referenceOf(Actor actor) {
+				return pathOf(actor);
+			}
+
+			@Override
+			public Actor actorOf(ActorPath reference) {
+				return RemoteNode.this.actorOf(reference);
+			}
+		}, new Codec<ActorPath>() {
+			@Override
+			public void encode(ActorPath value, CodecOutput out) {
+				out.writeString(value.host);
+				out.writeInt(value.port);
+				out.writeString(value.name);
+			}
+
+			@Override
+			public ActorPath decode(CodecInput in) {
+				return new ActorPath(in.readString(), in.readInt(), in.readString());
+			}
+		});
+		this.serializer = new CodecMessageSerializer(registry);
+	}
+
+	public RemoteNode(ActorGroup group, NioEventLoopGroup eventLoopGroup, MessageSerializer serializer) {
+		if (serializer == null) {
+			throw new NullPointerException();
+		}
+		this.group = group;
+		this.eventLoopGroup = eventLoopGroup;
+		this.serializer = serializer;
+	}
+
+	/**
+	 * Accepts the connections of the other nodes at the address, waiting until
+	 * it is bound.
+	 * 
+	 * @return the bound address, whose port is chosen by the system if the port
+	 *         of the argument is 0
+	 */
+	public final synchronized InetSocketAddress bind(InetSocketAddress address) {
+		if (serverChannel != null) {
+			throw new IllegalStateException("The node is already bound.");
+		}
+		ServerBootstrap bootstrap = new ServerBootstrap().group(eventLoopGroup).channel(NioServerSocketChannel.class)
+				.childOption(ChannelOption.TCP_NODELAY, true).childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel channel) throws Exception {
+						acceptedChannels.add(channel);
+						channel.pipeline().addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4),
+								new InboundHandler(RemoteNode.this));
+					}
+				});
+		this.serverChannel = bootstrap.bind(address).syncUninterruptibly().channel();
+		InetSocketAddress boundAddress = (InetSocketAddress) serverChannel.localAddress();
+		this.localAddress = new InetSocketAddress(address.getHostString(), boundAddress.getPort());
+		return this.localAddress;
+	}
+
+	/**
+	 * Returns the address the node is bound to, or {@code null} if it is not
+	 * bound.
+	 */
+	public final InetSocketAddress getLocalAddress() {
+		return localAddress;
+	}
+
+	/**
+	 * Returns the started proxy of the actor registered with the name in the
+	 * node at the address, connecting to that node if needed. The proxy is
+	 * already stopped if the connections to that node keep closing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the name is longer than {@link #MAX_NAME_LENGTH} bytes in
+	 *             UTF-8
+	 */
+	public final Actor actorOf(InetSocketAddress address, String name) {
+		if (address == null || name == null) {
+			throw new NullPointerException();
+		}
+		checkNameLength(ByteBufUtil.utf8Bytes(name));
+		RemoteActor proxy = null;
+		for (int attempt = 0; attempt < MAX_CONNECT_ATTEMPTS; attempt++) {
+			proxy = connectionOf(address).proxyOf(name);
+			if (!proxy.isStopped()) {
+				break;
+			}
+		}
+		return proxy;
+	}
+
+	/**
+	 * Returns the actor of the path, which is an actor of the group if the path
+	 * has the address of this node.
+	 */
+	public final Actor actorOf(ActorPath path) {
+		InetSocketAddress localAddress = this.localAddress;
+		if (localAddress != null && localAddress.getPort() == path.port
+				&& localAddress.getHostString().equals(path.host)) {
+			return group.whereis(path.name);
+		}
+		return actorOf(path.getAddress(), path.name);
+	}
+
+	/**
+	 * Returns the path of a proxy or of a registered actor of the group, or
+	 * {@code null} if the actor has no path.
+	 */
+	public final ActorPath pathOf(Actor actor) {
+		if (actor instanceof RemoteActor) {
+			return ((RemoteActor) actor).getPath();
+		}
+		InetSocketAddress localAddress = this.localAddress;
+		String name = actor.getName();
+		if (localAddress == null || name == null || actor.getGroup() != group) {
+			return null;
+		}
+		return new ActorPath(localAddress.getHostString(), localAddress.getPort(), name);
+	}
+
+	/**
+	 * Closes the connections, which stops the proxies, and stops accepting
+	 * connections, which stops the proxies of the other nodes to this node.
+	 */
+	@Override
+	public final void close() {
+		Channel serverChannel;
+		synchronized (this) {
+			serverChannel = this.serverChannel;
+			this.serverChannel = null;
+			this.localAddress = null;
+		}
+		if (serverChannel != null) {
+			serverChannel.close().syncUninterruptibly();
+		}
+		acceptedChannels.close().syncUninterruptibly();
+		for (Connection connection : connections.values()) {
+			connection.onClosed(new ClosedChannelException());
+		}
+	}
+
+	private Connection connectionOf(InetSocketAddress address) {
+		Connection connection = connections.get(address);
+		if (connection != null) {
+			return connection;
+		}
+		Connection newConnection = new Connection(this, address);
+		connection = connections.putIfAbsent(address, newConnection);
+		if (connection != null) {
+			return connection;
+		}
+		Bootstrap bootstrap = new Bootstrap().group(eventLoopGroup).channel(NioSocketChannel.class)
+				.option(ChannelOption.TCP_NODELAY, true).handler(new ChannelInboundHandlerAdapter());
+		ChannelFuture connectFuture = bootstrap.connect(address);
+		connectFuture.addListener(future -> {
+			if (future.isSuccess()) {
+				Channel channel = connectFuture.channel();
+				newConnection.onConnected(channel);
+				channel.closeFuture().addListener(closeFuture -> {
+					newConnection.onClosed(new ClosedChannelException());
+				});
+			} else {
+				newConnection.onClosed(future.cause());
+			}
+		});
+		return newConnection;
+	}
+
+	void onClosed(Connection connection) {
+		connections.remove(connection.address, connection);
+	}
+
+	/**
+	 * Encodes the messages into frames, starting a new frame when a message
+	 * would make the current one longer than {@link #MAX_FRAME_LENGTH}, and
+	 * dropping and reporting the messages which can not be serialized or are
+	 * too long for a frame of their own.
+	 * 
+	 * @return the frames, which are empty if no message is serialized
+	 */
+	List<ByteBuf> encode(String name, List<Object> messages) {
+		List<ByteBuf> frames = new ArrayList<>(1);
+		ByteBuf frame = null;
+		try {
+			int size = 0;
+			for (Object message : messages) {
+				if (frame == null) {
+					frame = newFrame(name);
+				}
+				int lengthIndex = frame.writerIndex();
+				frame.writeInt(0);
+				try {
+					serializer.serialize(message, frame);
+				} catch (Exception ex) {
+					frame.writerIndex(lengthIndex);
+					report(new MessageSerializationException(message, ex));
+					continue;
+				}
+				int length = frame.writerIndex() - lengthIndex - 4;
+				if (frame.writerIndex() > MAX_FRAME_LENGTH) {
+					frame.writerIndex(lengthIndex);
+					if (frameHeaderLength(frame) + 4 + length > MAX_FRAME_LENGTH) {
+						report(new MessageSerializationException(message, new TooLongFrameException(
+								"The message is longer than the frame length limit " + MAX_FRAME_LENGTH + ".")));
+						continue;
+					}
+					// moves the message into the next frame
+					ByteBuf nextFrame = newFrame(name);
+					nextFrame.writeBytes(frame, lengthIndex, length + 4);
+					finishFrame(frame, size);
+					frames.add(frame);
+					frame = nextFrame;
+					size = 0;
+				}
+				frame.setInt(frame.writerIndex() - length - 4, length);
+				size++;
+			}
+			if (frame != null) {
+				if (size == 0) {
+					frame.release();
+				} else {
+					finishFrame(frame, size);
+					frames.add(frame);
+				}
+				frame = null;
+			}
+		} catch (RuntimeException ex) {
+			if (frame != null) {
+				frame.release();
+			}
+			for (ByteBuf encodedFrame : frames) {
+				encodedFrame.release();
+			}
+			throw ex;
+		}
+		return frames;
+	}
+
+	private static ByteBuf newFrame(String name) {
+		ByteBuf frame = ByteBufAllocator.DEFAULT.buffer();
+		frame.writeInt(0);
+		frame.writeByte(SEND);
+		writeString(frame, name);
+		frame.writeInt(0);
+		return frame;
+	}
+
+	/**
+	 * Returns the length of the frame before its first message.
+	 */
+	private static int frameHeaderLength(ByteBuf frame) {
+		return 4 + 1 + 2 + frame.getUnsignedShort(5) + 4;
+	}
+
+	private static void finishFrame(ByteBuf frame, int size) {
+		frame.setInt(frameHeaderLength(frame) - 4, size);
+		frame.setInt(0, frame.writerIndex() - 4);
+	}
+
+	/**
+	 * Passes an exception which no caller can handle to the uncaught exception
+	 * handler of the current thread.
+	 */
+	static void report(Throwable ex) {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the string is longer than {@link #MAX_NAME_LENGTH} bytes in
+	 *             UTF-8
+	 */
+	static void writeString(ByteBuf out, String string) {
+		int length = ByteBufUtil.utf8Bytes(string);
+		checkNameLength(length);
+		out.writeShort(length);
+		ByteBufUtil.writeUtf8(out, string);
+	}
+
+	static void checkNameLength(int length) {
+		if (length > MAX_NAME_LENGTH) {
+			throw new IllegalArgumentException(
+					"The name is longer than " + MAX_NAME_LENGTH + " bytes in UTF-8.");
+		}
+	}
+
+	static String readString(ByteBuf in) {
+		int length = in.readUnsignedShort();
+		String string = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+		in.skipBytes(length);
+		return string;
+	}
+}
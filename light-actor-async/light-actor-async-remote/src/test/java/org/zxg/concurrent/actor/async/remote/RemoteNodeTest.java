@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.async.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+import org.zxg.concurrent.actor.async.core.DownMessage;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.async.remote.exception.MessageSerializationException;
+
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class RemoteNodeTest {
+
+	private ScheduledExecutorService executor;
+	private ActorGroup group;
+	private NioEventLoopGroup eventLoopGroup;
+	private RemoteNode server;
+	private RemoteNode client;
+	private InetSocketAddress serverAddress;
+	private BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+		group = new ActorGroup(Collections.singletonList(executor), 1);
+		eventLoopGroup = new NioEventLoopGroup(1);
+		server = new RemoteNode(group, eventLoopGroup);
+		client = new RemoteNode(group, eventLoopGroup);
+		serverAddress = server.bind(new InetSocketAddress("127.0.0.1", 0));
+		client.bind(new InetSocketAddress("127.0.0.1", 0));
+	}
+
+	@After
+	public void tearDown() {
+		client.close();
+		server.close();
+		eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+		executor.shutdownNow();
+	}
+
+	private static final class Receiver extends Actor {
+
+		private final Consumer<Object> handler;
+
+		Receiver(ActorGroup group, Consumer<Object> handler) {
+			super(group);
+			this.handler = handler;
+		}
+
+		@Override
+		protected Receive createReceive() {
+			// called by the constructor of the super class, before the handler is set
+			return new ReceiveBuilder().matchAny(message -> handler.accept(message)).build();
+		}
+	}
+
+	private Actor startActor(Consumer<Object> handler) {
+		Actor actor = new Receiver(group, handler);
+		actor.start();
+		return actor;
+	}
+
+	private List<Object> poll(int size) throws InterruptedException {
+		List<Object> messages = new ArrayList<>();
+		for (int index = 0; index < size; index++) {
+			Object message = received.poll(10, TimeUnit.SECONDS);
+			if (message == null) {
+				break;
+			}
+			messages.add(message);
+		}
+		return messages;
+	}
+
+	@Test
+	public void testSend() throws Exception {
+		group.register("target", startActor(received::add));
+		Actor proxy = client.actorOf(serverAddress, "target");
+		assertTrue(proxy instanceof RemoteActor);
+		for (int index = 0; index < 1000; index++) {
+			proxy.send(index);
+		}
+		List<Object> messages = poll(1000);
+		assertEquals(1000, messages.size());
+		for (int index = 0; index < 1000; index++) {
+			assertEquals(index, messages.get(index));
+		}
+		assertTrue(proxy == client.actorOf(serverAddress, "target"));
+	}
+
+	@Test
+	public void testReply() throws Exception {
+		// replies the reason to the sender of the message
+		group.register("echo", startActor(message -> {
+			DownMessage request = (DownMessage) message;
+			request.from.send(request.reason);
+		}));
+		group.register("replyTo", startActor(received::add));
+		Actor proxy = client.actorOf(serverAddress, "echo");
+		proxy.send(new DownMessage(group.whereis("replyTo"), "pong"));
+		assertEquals(Arrays.asList((Object) "pong"), poll(1));
+	}
+
+	@Test
+	public void testUnserializableMessage() throws Exception {
+		group.register("target", startActor(received::add));
+		Actor proxy = client.actorOf(serverAddress, "target");
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((thread, ex) -> {
+		});
+		try {
+			proxy.send("a");
+			proxy.send(new Object());
+			proxy.send("b");
+			assertEquals(Arrays.asList((Object) "a", "b"), poll(2));
+			assertFalse(proxy.isStopped());
+			proxy.send("c");
+			assertEquals(Arrays.asList((Object) "c"), poll(1));
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+	}
+
+	@Test
+	public void testLongBatch() throws Exception {
+		group.register("target", startActor(received::add));
+		Actor proxy = client.actorOf(serverAddress, "target");
+		BlockingQueue<Throwable> reported = new LinkedBlockingQueue<>();
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((thread, ex) -> reported.add(ex));
+		try {
+			int length = RemoteNode.MAX_FRAME_LENGTH / 3;
+			proxy.send(new byte[length]);
+			proxy.send(new byte[RemoteNode.MAX_FRAME_LENGTH]);
+			proxy.send(new byte[length]);
+			proxy.send(new byte[length]);
+			proxy.send("a");
+			List<Object> messages = poll(4);
+			assertEquals(4, messages.size());
+			for (int index = 0; index < 3; index++) {
+				assertEquals(length, ((byte[]) messages.get(index)).length);
+			}
+			assertEquals("a", messages.get(3));
+			Throwable ex = reported.poll(10, TimeUnit.SECONDS);
+			assertTrue(ex instanceof MessageSerializationException);
+			assertTrue(ex.getCause() instanceof TooLongFrameException);
+			assertFalse(proxy.isStopped());
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLongName() {
+		char[] name = new char[RemoteNode.MAX_NAME_LENGTH / 2 + 1];
+		// two bytes each in UTF-8
+		Arrays.fill(name, '\u00e9');
+		client.actorOf(serverAddress, new String(name));
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		group.register("target", startActor(received::add));
+		Actor proxy = client.actorOf(serverAddress, "target");
+		Actor watcher = startActor(received::add);
+		watcher.monitor(proxy);
+		proxy.send("a");
+		assertEquals(Arrays.asList((Object) "a"), poll(1));
+		server.close();
+		Object message = received.poll(10, TimeUnit.SECONDS);
+		assertTrue(message instanceof DownMessage);
+		assertTrue(((DownMessage) message).from == proxy);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.zxg.concurrent.actor.async.core.ActorGroup;
+import org.zxg.concurrent.actor.async.netty.NettyActorGroup;
+
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+
+/**
+ * Runs a benchmark against both {@link ActorGroup} and
+ * {@link NettyActorGroup}.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractAsyncBenchmark {
+
+	protected static final int EXECUTORS_SIZE = 4;
+
+	@Param({ "executor", "netty" })
+	public String groupType;
+
+	protected ActorGroup group;
+	private List<ScheduledExecutorService> executors;
+	private DefaultEventExecutorGroup eventExecutorGroup;
+
+	@Setup(Level.Trial)
+	public final void setUpGroup() throws Exception {
+		if ("netty".equals(groupType)) {
+			eventExecutorGroup = new DefaultEventExecutorGroup(EXECUTORS_SIZE);
+			group = new NettyActorGroup(eventExecutorGroup);
+		} else {
+			executors = new ArrayList<>(EXECUTORS_SIZE);
+			for (int index = 0; index < EXECUTORS_SIZE; index++) {
+				executors.add(Executors.newSingleThreadScheduledExecutor());
+			}
+			group = new ActorGroup(executors, EXECUTORS_SIZE);
+		}
+		setUp();
+	}
+
+	@TearDown(Level.Trial)
+	public final void tearDownGroup() throws Exception {
+		tearDown();
+		if (eventExecutorGroup != null) {
+			eventExecutorGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+			eventExecutorGroup = null;
+		}
+		if (executors != null) {
+			for (ScheduledExecutorService executor : executors) {
+				executor.shutdownNow();
+			}
+			executors = null;
+		}
+	}
+
+	protected abstract void setUp() throws Exception;
+
+	protected void tearDown() throws Exception {
+	}
+
+	protected static void awaitLatch(CountDownLatch latch) throws InterruptedException {
+		if (!latch.await(1, TimeUnit.MINUTES)) {
+			throw new IllegalStateException("The benchmark invocation has timed out.");
+		}
+	}
+}
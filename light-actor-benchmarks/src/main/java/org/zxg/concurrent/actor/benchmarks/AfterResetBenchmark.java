@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+
+/**
+ * Cost of resetting the receive timeout on every matched message, compared
+ * with an actor without timeout.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AfterResetBenchmark extends AbstractAsyncBenchmark {
+
+	private static final int MESSAGES = 100000;
+	private static final Object MESSAGE = new Object();
+
+	@Param({ "false", "true" })
+	public boolean withAfter;
+
+	@Param({ "1", "100" })
+	public int actorsSize;
+
+	private Actor[] actors;
+	private volatile CountDownLatch latch;
+
+	@Override
+	protected void setUp() {
+		int messagesPerActor = MESSAGES / actorsSize;
+		actors = new Actor[actorsSize];
+		for (int index = 0; index < actorsSize; index++) {
+			actors[index] = new Actor(group) {
+				private int count = 0;
+
+				@Override
+				protected Receive createReceive() {
+					ReceiveBuilder builder = new ReceiveBuilder().matchAny(message -> {
+						if (++count == messagesPerActor) {
+							count = 0;
+							latch.countDown();
+						}
+					});
+					if (withAfter) {
+						builder.after(1, TimeUnit.HOURS, () -> {
+						});
+					}
+					return builder.build();
+				}
+			};
+			actors[index].start();
+		}
+	}
+
+	@Override
+	protected void tearDown() {
+		for (Actor actor : actors) {
+			actor.stop();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void afterReset() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(actorsSize);
+		this.latch = latch;
+		int messagesPerActor = MESSAGES / actorsSize;
+		for (int count = 0; count < messagesPerActor; count++) {
+			for (Actor actor : actors) {
+				actor.send(MESSAGE);
+			}
+		}
+		awaitLatch(latch);
+	}
+}
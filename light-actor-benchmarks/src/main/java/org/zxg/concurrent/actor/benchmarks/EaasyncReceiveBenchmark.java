@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import static com.ea.async.Async.await;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.zxg.concurrent.actor.eaasync.core.Actor;
+import org.zxg.concurrent.actor.eaasync.core.ActorGroup;
+import org.zxg.concurrent.actor.eaasync.core.Receive;
+import org.zxg.concurrent.actor.eaasync.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.eaasync.core.TypeMatcher;
+import org.zxg.concurrent.actor.eaasync.netty.NettyActorGroup;
+
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+
+/**
+ * Overhead of {@link Actor#receive()} and {@link Actor#receive(Receive)} in
+ * coroutine style actors.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EaasyncReceiveBenchmark {
+
+	private static final int EXECUTORS_SIZE = 4;
+	private static final int MESSAGES = 100000;
+	private static final Integer MESSAGE = 1;
+
+	@Param({ "executor", "netty" })
+	public String groupType;
+
+	@Param({ "false", "true" })
+	public boolean isSelective;
+
+	private List<ScheduledExecutorService> executors;
+	private DefaultEventExecutorGroup eventExecutorGroup;
+	private Actor actor;
+	private volatile CountDownLatch latch;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ActorGroup group;
+		if ("netty".equals(groupType)) {
+			eventExecutorGroup = new DefaultEventExecutorGroup(EXECUTORS_SIZE);
+			group = new NettyActorGroup(eventExecutorGroup);
+		} else {
+			executors = new ArrayList<>(EXECUTORS_SIZE);
+			for (int index = 0; index < EXECUTORS_SIZE; index++) {
+				executors.add(Executors.newSingleThreadScheduledExecutor());
+			}
+			group = new ActorGroup(executors, EXECUTORS_SIZE);
+		}
+		Receive receive = new ReceiveBuilder().match(new TypeMatcher(Integer.class), message -> {
+			return completedFuture(null);
+		}).build();
+		actor = new Actor(group) {
+			@Override
+			protected CompletableFuture<Object> run() {
+				int count = 0;
+				while (true) {
+					if (isSelective) {
+						await(receive(receive));
+					} else {
+						await(receive());
+					}
+					if (++count == MESSAGES) {
+						count = 0;
+						latch.countDown();
+					}
+				}
+			}
+		};
+		actor.start();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		actor.stop();
+		if (eventExecutorGroup != null) {
+			eventExecutorGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+			eventExecutorGroup = null;
+		}
+		if (executors != null) {
+			for (ScheduledExecutorService executor : executors) {
+				executor.shutdownNow();
+			}
+			executors = null;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void receive() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		this.latch = latch;
+		for (int index = 0; index < MESSAGES; index++) {
+			actor.send(MESSAGE);
+		}
+		if (!latch.await(1, TimeUnit.MINUTES)) {
+			throw new IllegalStateException("The benchmark invocation has timed out.");
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+
+/**
+ * Throughput of many senders sending to one actor.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FanInBenchmark extends AbstractAsyncBenchmark {
+
+	private static final int MESSAGES = 100000;
+	private static final Object MESSAGE = new Object();
+	private static final Object SEND = new Object();
+
+	@Param({ "1", "4", "16" })
+	public int sendersSize;
+
+	private Actor sink;
+	private Actor[] senders;
+	private volatile CountDownLatch latch;
+
+	@Override
+	protected void setUp() {
+		sink = new Actor(group) {
+			private int count = 0;
+
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().matchAny(message -> {
+					if (++count == MESSAGES) {
+						count = 0;
+						latch.countDown();
+					}
+				}).build();
+			}
+		};
+		sink.start();
+		int messagesPerSender = MESSAGES / sendersSize;
+		senders = new Actor[sendersSize];
+		for (int index = 0; index < sendersSize; index++) {
+			senders[index] = new Actor(group) {
+				@Override
+				protected Receive createReceive() {
+					return new ReceiveBuilder().matchAny(message -> {
+						for (int count = 0; count < messagesPerSender; count++) {
+							sink.send(MESSAGE);
+						}
+					}).build();
+				}
+			};
+			senders[index].start();
+		}
+	}
+
+	@Override
+	protected void tearDown() {
+		sink.stop();
+		for (Actor sender : senders) {
+			sender.stop();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void fanIn() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		this.latch = latch;
+		for (Actor sender : senders) {
+			sender.send(SEND);
+		}
+		awaitLatch(latch);
+	}
+}
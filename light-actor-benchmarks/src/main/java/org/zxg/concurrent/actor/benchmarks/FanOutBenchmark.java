@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+
+/**
+ * Throughput of one actor sending to many receivers.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FanOutBenchmark extends AbstractAsyncBenchmark {
+
+	private static final int MESSAGES = 100000;
+	private static final Object MESSAGE = new Object();
+	private static final Object SEND = new Object();
+
+	@Param({ "1", "4", "16" })
+	public int receiversSize;
+
+	private Actor source;
+	private Actor[] receivers;
+	private volatile CountDownLatch latch;
+
+	@Override
+	protected void setUp() {
+		int messagesPerReceiver = MESSAGES / receiversSize;
+		receivers = new Actor[receiversSize];
+		for (int index = 0; index < receiversSize; index++) {
+			receivers[index] = new Actor(group) {
+				private int count = 0;
+
+				@Override
+				protected Receive createReceive() {
+					return new ReceiveBuilder().matchAny(message -> {
+						if (++count == messagesPerReceiver) {
+							count = 0;
+							latch.countDown();
+						}
+					}).build();
+				}
+			};
+			receivers[index].start();
+		}
+		source = new Actor(group) {
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().matchAny(message -> {
+					for (int count = 0; count < messagesPerReceiver; count++) {
+						for (Actor receiver : receivers) {
+							receiver.send(MESSAGE);
+						}
+					}
+				}).build();
+			}
+		};
+		source.start();
+	}
+
+	@Override
+	protected void tearDown() {
+		source.stop();
+		for (Actor receiver : receivers) {
+			receiver.stop();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void fanOut() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(receiversSize);
+		this.latch = latch;
+		source.send(SEND);
+		awaitLatch(latch);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.async.core.TypeMatcher;
+
+/**
+ * Latency of a round trip between two actors.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PingPongBenchmark extends AbstractAsyncBenchmark {
+
+	private static final int ROUND_TRIPS = 1000;
+
+	private Actor ping;
+	private Actor pong;
+	private volatile CountDownLatch latch;
+
+	@Override
+	protected void setUp() {
+		ping = new Actor(group) {
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().match(new TypeMatcher(Integer.class), message -> {
+					int count = (Integer) message;
+					if (count == 0) {
+						latch.countDown();
+					} else {
+						pong.send(count);
+					}
+				}).build();
+			}
+		};
+		pong = new Actor(group) {
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().match(new TypeMatcher(Integer.class), message -> {
+					ping.send((Integer) message - 1);
+				}).build();
+			}
+		};
+		ping.start();
+		pong.start();
+	}
+
+	@Override
+	protected void tearDown() {
+		ping.stop();
+		pong.stop();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROUND_TRIPS)
+	public void roundTrip() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		this.latch = latch;
+		ping.send(ROUND_TRIPS);
+		awaitLatch(latch);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.async.core.TypeMatcher;
+
+/**
+ * Throughput of matched messages while the actor keeps a stash of unmatched
+ * messages.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SelectiveReceiveBenchmark extends AbstractAsyncBenchmark {
+
+	private static final int MESSAGES = 1000;
+	private static final Integer MESSAGE = 1;
+
+	@Param({ "0", "100", "1000", "10000" })
+	public int stashDepth;
+
+	private Actor actor;
+	private volatile CountDownLatch latch;
+
+	@Override
+	protected void setUp() throws InterruptedException {
+		actor = new Actor(group) {
+			private int count = 0;
+
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().match(new TypeMatcher(Integer.class), message -> {
+					if (++count == MESSAGES) {
+						count = 0;
+						latch.countDown();
+					}
+				}).match(new TypeMatcher(CountDownLatch.class), message -> {
+					((CountDownLatch) message).countDown();
+				}).build();
+			}
+		};
+		actor.start();
+		for (int index = 0; index < stashDepth; index++) {
+			actor.send(String.valueOf(index));
+		}
+		CountDownLatch stashed = new CountDownLatch(1);
+		actor.send(stashed);
+		awaitLatch(stashed);
+	}
+
+	@Override
+	protected void tearDown() {
+		actor.stop();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void selectiveReceive() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		this.latch = latch;
+		for (int index = 0; index < MESSAGES; index++) {
+			actor.send(MESSAGE);
+		}
+		awaitLatch(latch);
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.zxg.concurrent.actor.async.behaviour.server.Request;
+import org.zxg.concurrent.actor.async.behaviour.server.Server;
+import org.zxg.concurrent.actor.async.core.Actor;
+import org.zxg.concurrent.actor.async.core.Receive;
+import org.zxg.concurrent.actor.async.core.ReceiveBuilder;
+import org.zxg.concurrent.actor.async.core.TypeMatcher;
+
+/**
+ * Latency of a synchronous {@link Server#call(Object)} round trip.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServerCallBenchmark extends AbstractAsyncBenchmark {
+
+	private static final Object REQUEST = new Object();
+
+	private Server server;
+
+	@Override
+	protected void setUp() {
+		Actor echo = new Actor(group) {
+			@Override
+			protected Receive createReceive() {
+				return new ReceiveBuilder().match(new TypeMatcher(Request.class), message -> {
+					Request request = (Request) message;
+					request.reply(request.content);
+				}).build();
+			}
+		};
+		echo.start();
+		server = new Server(echo);
+	}
+
+	@Override
+	protected void tearDown() {
+		server.server.stop();
+	}
+
+	@Benchmark
+	public Object call() {
+		return server.call(REQUEST);
+	}
+}
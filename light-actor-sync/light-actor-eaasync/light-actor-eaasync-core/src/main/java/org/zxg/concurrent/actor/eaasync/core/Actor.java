@@ -19,8 +19,6 @@ package org.zxg.concurrent.actor.eaasync.core;
 import static com.ea.async.Async.await;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -28,17 +26,32 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * Coroutine-style actor, whose {@link #run()} awaits the messages with
+ * ea-async.
+ * <p>
+ * The futures returned to the code of the actor are always new, since that
+ * code may keep or compose them. A receive which has to wait can not be free
+ * of garbage: a {@link CompletableFuture} can not be reset once it is
+ * completed, and ea-async suspends on a future which is not done by
+ * allocating the stages and the continuation which resume the method. Only the
+ * saved messages are kept without allocating, see {@link Stash}.
+ * 
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
  */
 public abstract class Actor implements Comparable<Actor> {
 
 	private static final Object AFTER_MESSAGE = new Object();
+	/**
+	 * Only returned to the scheduler, never to the code of the actors.
+	 */
+	private static final CompletableFuture<Void> COMPLETED_VOID = completedFuture(null);
 
 	private Scheduler scheduler;
 	private AtomicReference<ActorState> stateRef = new AtomicReference<>(ActorState.CREATED);
 	AtomicReference<String> nameRef = new AtomicReference<>();
 	private CompletableFuture<Object> next;
-	private Deque<Object> savedMessages = new LinkedList<>();
+	private Stash savedMessages = new Stash();
+	private boolean isAfterFired = false;
 	private Set<Actor> links = new ConcurrentSkipListSet<>();
 	private volatile boolean isTrapStop = false;
 	private Set<Actor> monitors = new ConcurrentSkipListSet<>();
@@ -169,6 +182,10 @@ public abstract class Actor implements Comparable<Actor> {
 		return null;
 	}
 
+	/**
+	 * Receives the next message. The returned future belongs to the caller, it
+	 * is never completed again by a later receive.
+	 */
 	public static CompletableFuture<Object> receive() {
 		Actor self = current();
 		if (null == self) {
@@ -188,46 +205,39 @@ public abstract class Actor implements Comparable<Actor> {
 			afterFuture = self.scheduler.after(self, receive);
 		}
 
-		Deque<Object> unmatchedMessages = new LinkedList<>();
 		do {
-			Object message = await(self.internalReceive());
-			if (AFTER_MESSAGE == message) {
-				self.restoreUnmatchedMessages(unmatchedMessages);
+			ReceiveRule rule;
+			try {
+				rule = self.savedMessages.find(receive);
+			} catch (Exception ex) {
+				self.cancelAfter(afterFuture);
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				future.completeExceptionally(ex);
+				return future;
+			}
+			if (rule != null) {
+				self.cancelAfter(afterFuture);
+				return rule.receiver.accept(self.savedMessages.takeFound());
+			}
+			if (self.isAfterFired) {
+				self.isAfterFired = false;
 				return receive.afterHook.run();
 			}
-			for (ReceiveRule rule : receive.receiveRules) {
-				boolean isMatched = false;
-				try {
-					isMatched = rule.matcher.test(message);
-				} catch (Exception ex) {
-					if (afterFuture != null) {
-						afterFuture.cancel(false);
-					}
-					unmatchedMessages.offer(message);
-					self.restoreUnmatchedMessages(unmatchedMessages);
-					CompletableFuture<Void> future = new CompletableFuture<>();
-					future.completeExceptionally(ex);
-					return future;
-				}
-				if (isMatched) {
-					if (null == afterFuture || afterFuture.cancel(false)) {
-						self.restoreUnmatchedMessages(unmatchedMessages);
-						return rule.receiver.accept(message);
-					} else {
-						unmatchedMessages.offer(message);
-						self.restoreUnmatchedMessages(unmatchedMessages);
-						return completedFuture(null);
-					}
-				}
+			Object message = await(self.internalNext());
+			if (AFTER_MESSAGE != message) {
+				self.savedMessages.add(message);
 			}
-			unmatchedMessages.offer(message);
 		} while (true);
 	}
 
-	private final void restoreUnmatchedMessages(Deque<Object> unmatchedMessages) {
-		Object message;
-		while ((message = unmatchedMessages.pollLast()) != null) {
-			this.savedMessages.offerFirst(message);
+	/**
+	 * Cancels the timeout of a receive. A timeout which can not be cancelled
+	 * has already fired on this thread, so its flag is cleared as well.
+	 */
+	private final void cancelAfter(ScheduledFuture<?> afterFuture) {
+		if (afterFuture != null) {
+			afterFuture.cancel(false);
+			this.isAfterFired = false;
 		}
 	}
 
@@ -238,27 +248,52 @@ public abstract class Actor implements Comparable<Actor> {
 			return future;
 		}
 		if (this.savedMessages.isEmpty()) {
-			scheduler.currentActor = null;
-			this.next = new CompletableFuture<>();
-			return this.next;
+			return internalNext();
 		} else {
 			return completedFuture(this.savedMessages.poll());
 		}
 	}
 
+	/**
+	 * Waits for the next message sent to the actor, without looking at the
+	 * saved messages.
+	 */
+	private final CompletableFuture<Object> internalNext() {
+		scheduler.currentActor = null;
+		if (isStopped()) {
+			return new CompletableFuture<>();
+		}
+		// a completed future can not be reset to wait again, see the class doc
+		this.next = new CompletableFuture<>();
+		return this.next;
+	}
+
 	void onReceive(Object message) {
 		if (isStopped()) {
 			return;
 		}
-		savedMessages.offer(message);
-		if (null != next && !next.isDone()) {
-			scheduler.currentActor = this;
-			this.next.complete(savedMessages.poll());
+		if (!resume(message)) {
+			savedMessages.add(message);
 		}
 	}
 
 	void onAfter() {
-		onReceive(AFTER_MESSAGE);
+		if (isStopped()) {
+			return;
+		}
+		this.isAfterFired = true;
+		resume(AFTER_MESSAGE);
+	}
+
+	private final boolean resume(Object message) {
+		CompletableFuture<Object> next = this.next;
+		if (null == next || next.isDone()) {
+			return false;
+		}
+		scheduler.currentActor = this;
+		this.next = null;
+		next.complete(message);
+		return true;
 	}
 
 	CompletableFuture<Void> onStart() {
@@ -319,6 +354,6 @@ public abstract class Actor implements Comparable<Actor> {
 		this.monitors.clear();
 		this.monitoredActors.clear();
 
-		return completedFuture(null);
+		return COMPLETED_VOID;
 	}
 }
@@ -16,16 +16,33 @@
  */
 package org.zxg.concurrent.actor.eaasync.core;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Rules matched against the messages of an actor by
+ * {@link Actor#receive(Receive)}.
+ * <p>
+ * A receive whose rules all match by type, or which is declared pure with
+ * {@link ReceiveBuilder#pure()}, remembers which saved messages it has already
+ * rejected and never tests them again. The other receives test all the saved
+ * messages every time, since a matcher with state may accept a message it has
+ * rejected before.
+ * 
  * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
  */
 public final class Receive {
 
 	List<ReceiveRule> receiveRules;
+	ConcurrentMap<Class<?>, ReceiveRule[]> dispatchTable;
+	/**
+	 * Whether a message rejected once is always rejected.
+	 */
+	boolean isPure;
 
 	long afterTime;
 	TimeUnit afterTimeUnit;
@@ -34,4 +51,44 @@ public final class Receive {
 	Receive() {
 		receiveRules = new LinkedList<>();
 	}
+
+	void compile() {
+		dispatchTable = new ConcurrentHashMap<>();
+		if (!isPure) {
+			isPure = true;
+			for (ReceiveRule rule : receiveRules) {
+				if (rule.type == null) {
+					isPure = false;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the rules which may match the messages of the type, in declared
+	 * order. The type rules which can not match are left out, and no rule after
+	 * a matched type rule is kept, so an empty array means that no message of
+	 * the type is matched.
+	 */
+	ReceiveRule[] rulesOf(Class<?> messageType) {
+		ReceiveRule[] rules = dispatchTable.get(messageType);
+		if (rules == null) {
+			List<ReceiveRule> candidates = new ArrayList<>();
+			for (ReceiveRule rule : receiveRules) {
+				if (rule.type == null) {
+					candidates.add(rule);
+				} else if (rule.type.isAssignableFrom(messageType)) {
+					candidates.add(rule);
+					break;
+				}
+			}
+			rules = candidates.toArray(new ReceiveRule[candidates.size()]);
+			ReceiveRule[] oldRules = dispatchTable.putIfAbsent(messageType, rules);
+			if (oldRules != null) {
+				rules = oldRules;
+			}
+		}
+		return rules;
+	}
 }
@@ -40,6 +40,10 @@ public final class ReceiveBuilder {
 		return this;
 	}
 
+	/**
+	 * Unless the receive is declared {@link #pure()}, the saved messages are
+	 * all tested again by the matcher every time the receive is used.
+	 */
 	public ReceiveBuilder match(Predicate<Object> matcher, AsyncConsumer<Object> receiver) {
 		if (matcher == null || receiver == null) {
 			throw new NullPointerException();
@@ -74,10 +78,21 @@ public final class ReceiveBuilder {
 		return this;
 	}
 
+	/**
+	 * Declares that the matchers have no state, so that a message they reject
+	 * is never tested again by the built receive. A message rejected by the
+	 * matcher of a pure receive stays saved until another receive takes it.
+	 */
+	public ReceiveBuilder pure() {
+		receive.isPure = true;
+		return this;
+	}
+
 	public Receive build() throws InvalidReceiveException {
 		if (receive.receiveRules.isEmpty() && receive.afterHook == null) {
 			throw new InvalidReceiveException();
 		}
+		receive.compile();
 		return receive;
 	}
 }
@@ -30,24 +30,35 @@ final class ReceiveRule {
 
 	public Predicate<Object> matcher;
 	public AsyncConsumer<Object> receiver;
+	/**
+	 * Type of the messages matched by this rule, or {@code null} if the matcher
+	 * is not a type matcher.
+	 */
+	public Class<?> type;
 
 	public ReceiveRule() {
-		this.matcher = anyMatcher;
-		this.receiver = emptyReceiver;
+		this(anyMatcher, emptyReceiver);
 	}
 
 	public ReceiveRule(Predicate<Object> matcher) {
-		this.matcher = matcher;
-		this.receiver = emptyReceiver;
+		this(matcher, emptyReceiver);
 	}
 
 	public ReceiveRule(AsyncConsumer<Object> receiver) {
-		this.matcher = anyMatcher;
-		this.receiver = receiver;
+		this(anyMatcher, receiver);
 	}
 
 	public ReceiveRule(Predicate<Object> matcher, AsyncConsumer<Object> receiver) {
 		this.matcher = matcher;
 		this.receiver = receiver;
+		if (matcher == anyMatcher) {
+			this.type = Object.class;
+		} else if (matcher instanceof TypeMatcher) {
+			this.type = ((TypeMatcher) matcher).type;
+		}
+	}
+
+	public boolean test(Object message) {
+		return this.type != null || this.matcher.test(message);
 	}
 }
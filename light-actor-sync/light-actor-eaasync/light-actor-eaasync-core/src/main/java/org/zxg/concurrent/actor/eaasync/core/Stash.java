@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.eaasync.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Unmatched messages of an actor in arrival order, indexed by their classes.
+ * <p>
+ * For every pure {@link Receive} used on it, the stash remembers the sequence
+ * number below which all the messages have been rejected by that receive.
+ * Using the same receive again only tests the messages saved since; the other
+ * receives test all the messages. Either way only the messages of the classes
+ * the rules may match are tested. The entries are recycled, so that a steady stream of
+ * saved and taken messages allocates nothing.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class Stash {
+
+	private static final int MAX_FREE_ENTRIES_SIZE = 64;
+
+	private static final class Entry {
+
+		Object message;
+		long sequence;
+		TypeList typeList;
+		Entry previous;
+		Entry next;
+		Entry previousOfType;
+		Entry nextOfType;
+	}
+
+	private static final class TypeList {
+
+		Class<?> type;
+		Entry head;
+		Entry tail;
+
+		TypeList(Class<?> type) {
+			this.type = type;
+		}
+	}
+
+	private static final class Cursor {
+
+		long sequence;
+	}
+
+	/**
+	 * Cursor of the receives which are not pure, which always stays at the
+	 * first message.
+	 */
+	private static final Cursor RESCAN = new Cursor();
+
+	private Entry head;
+	private Entry tail;
+	private int size;
+	private long nextSequence;
+	private Map<Class<?>, TypeList> typeListMap = new HashMap<>();
+	private TypeList[] typeLists = new TypeList[4];
+	private int typeListsSize;
+	private Map<Receive, Cursor> cursors = new WeakHashMap<>();
+	private Entry freeEntries;
+	private int freeEntriesSize;
+	private Entry found;
+
+	public void add(Object message) {
+		Class<?> type = message.getClass();
+		TypeList typeList = typeListMap.get(type);
+		if (typeList == null) {
+			typeList = new TypeList(type);
+			typeListMap.put(type, typeList);
+			if (typeListsSize == typeLists.length) {
+				typeLists = Arrays.copyOf(typeLists, typeListsSize << 1);
+			}
+			typeLists[typeListsSize++] = typeList;
+		}
+		Entry entry = newEntry();
+		entry.message = message;
+		entry.sequence = nextSequence++;
+		entry.typeList = typeList;
+		entry.previous = tail;
+		if (tail == null) {
+			head = entry;
+		} else {
+			tail.next = entry;
+		}
+		tail = entry;
+		entry.previousOfType = typeList.tail;
+		if (typeList.tail == null) {
+			typeList.head = entry;
+		} else {
+			typeList.tail.nextOfType = entry;
+		}
+		typeList.tail = entry;
+		size++;
+	}
+
+	public Object poll() {
+		Entry entry = head;
+		if (entry == null) {
+			return null;
+		}
+		return remove(entry);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the earliest message matched by the receive, which is then taken by
+	 * {@link #takeFound()}.
+	 * 
+	 * @return the first rule matching the found message, or {@code null} if no
+	 *         message is matched
+	 */
+	public ReceiveRule find(Receive receive) {
+		Cursor cursor;
+		if (receive.isPure) {
+			cursor = cursors.get(receive);
+			if (cursor == null) {
+				cursor = new Cursor();
+				cursors.put(receive, cursor);
+			}
+		} else {
+			// a matcher with state may accept what it rejected before
+			cursor = RESCAN;
+		}
+		Entry found = null;
+		ReceiveRule foundRule = null;
+		for (int index = 0; index < typeListsSize; index++) {
+			TypeList typeList = typeLists[index];
+			Entry entry = typeList.tail;
+			if (entry == null || entry.sequence < cursor.sequence) {
+				continue;
+			}
+			ReceiveRule[] rules = receive.rulesOf(typeList.type);
+			if (rules.length == 0) {
+				continue;
+			}
+			// walks back over the messages saved since the last find only
+			while (entry.previousOfType != null && entry.previousOfType.sequence >= cursor.sequence) {
+				entry = entry.previousOfType;
+			}
+			for (; entry != null && (found == null || entry.sequence < found.sequence); entry = entry.nextOfType) {
+				ReceiveRule rule = match(rules, entry.message);
+				if (rule != null) {
+					found = entry;
+					foundRule = rule;
+					break;
+				}
+			}
+		}
+		if (cursor != RESCAN) {
+			cursor.sequence = found == null ? nextSequence : found.sequence;
+		}
+		this.found = found;
+		return foundRule;
+	}
+
+	/**
+	 * Removes and returns the message found by the last {@link #find(Receive)}.
+	 */
+	public Object takeFound() {
+		Entry found = this.found;
+		this.found = null;
+		return remove(found);
+	}
+
+	private static ReceiveRule match(ReceiveRule[] rules, Object message) {
+		for (ReceiveRule rule : rules) {
+			if (rule.test(message)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	private Object remove(Entry entry) {
+		if (entry.previous == null) {
+			head = entry.next;
+		} else {
+			entry.previous.next = entry.next;
+		}
+		if (entry.next == null) {
+			tail = entry.previous;
+		} else {
+			entry.next.previous = entry.previous;
+		}
+		TypeList typeList = entry.typeList;
+		if (entry.previousOfType == null) {
+			typeList.head = entry.nextOfType;
+		} else {
+			entry.previousOfType.nextOfType = entry.nextOfType;
+		}
+		if (entry.nextOfType == null) {
+			typeList.tail = entry.previousOfType;
+		} else {
+			entry.nextOfType.previousOfType = entry.previousOfType;
+		}
+		size--;
+		Object message = entry.message;
+		freeEntry(entry);
+		return message;
+	}
+
+	private Entry newEntry() {
+		Entry entry = freeEntries;
+		if (entry == null) {
+			return new Entry();
+		}
+		freeEntries = entry.next;
+		entry.next = null;
+		freeEntriesSize--;
+		return entry;
+	}
+
+	private void freeEntry(Entry entry) {
+		entry.message = null;
+		entry.typeList = null;
+		entry.previous = null;
+		entry.previousOfType = null;
+		entry.nextOfType = null;
+		if (freeEntriesSize < MAX_FREE_ENTRIES_SIZE) {
+			entry.next = freeEntries;
+			freeEntries = entry;
+			freeEntriesSize++;
+		} else {
+			entry.next = null;
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.vthread;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.zxg.concurrent.actor.vthread.exception.ActorInterruptedException;
+import org.zxg.concurrent.actor.vthread.exception.ActorStoppedException;
+
+/**
+ * Actor which runs on its own thread, a virtual thread by default, and blocks
+ * in {@link #receive()} and {@link #receive(Receive)} until a message arrives.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public abstract class Actor {
+
+	private static final ThreadLocal<Actor> currentActor = new ThreadLocal<>();
+
+	private ActorGroup group;
+	private AtomicReference<ActorState> stateRef = new AtomicReference<>(ActorState.CREATED);
+	private AtomicReference<Ref<Object>> stopReasonRef = new AtomicReference<>();
+	AtomicReference<String> nameRef = new AtomicReference<>();
+	private Queue<Object> mailbox = new ConcurrentLinkedQueue<>();
+	private Deque<Object> savedMessages = new ArrayDeque<>();
+	private volatile Thread thread;
+	private volatile boolean isWaiting = false;
+	private Set<Actor> links = ConcurrentHashMap.newKeySet();
+	private volatile boolean isTrapStop = false;
+	private Set<Actor> monitors = ConcurrentHashMap.newKeySet();
+	private Set<Actor> monitoredActors = ConcurrentHashMap.newKeySet();
+
+	protected Actor(ActorGroup group) {
+		if (group == null) {
+			throw new NullPointerException();
+		}
+		this.group = group;
+	}
+
+	/**
+	 * Runs on the thread of this actor, the returned value is the reason of the
+	 * stop.
+	 */
+	protected abstract Object run() throws Exception;
+
+	public final void start() {
+		if (stateRef.compareAndSet(ActorState.CREATED, ActorState.STARTED)) {
+			Thread thread = group.newThread(this::onStart);
+			this.thread = thread;
+			thread.start();
+		}
+	}
+
+	public final void send(Object message) {
+		if (message == null) {
+			throw new NullPointerException();
+		}
+		if (stateRef.get() != ActorState.STARTED) {
+			return;
+		}
+		mailbox.offer(message);
+		if (isWaiting) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	public final void stop() {
+		stop(null);
+	}
+
+	public final void stop(Object reason) {
+		if (stateRef.get() != ActorState.STARTED) {
+			return;
+		}
+		if (stopReasonRef.compareAndSet(null, new Ref<>(reason))) {
+			stateRef.set(ActorState.STOPPED);
+			Thread thread = this.thread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+
+	public final ActorState getState() {
+		return stateRef.get();
+	}
+
+	public final boolean isStopped() {
+		return stateRef.get() == ActorState.STOPPED;
+	}
+
+	public final boolean isStarted() {
+		return stateRef.get() == ActorState.STARTED;
+	}
+
+	public final void link(Actor actor) {
+		if (this == actor || this.isStopped() || actor.isStopped()) {
+			return;
+		}
+		actor.links.add(this);
+		this.links.add(actor);
+	}
+
+	public final void unlink(Actor actor) {
+		if (this.isStopped() || actor.isStopped()) {
+			return;
+		}
+		actor.links.remove(this);
+		this.links.remove(actor);
+	}
+
+	public final void setTrapStop(boolean trapStop) {
+		if (this.isStopped()) {
+			return;
+		}
+		this.isTrapStop = trapStop;
+	}
+
+	public final boolean isTrapStop() {
+		return this.isTrapStop;
+	}
+
+	public final void monitor(Actor actor) {
+		if (this == actor || this.isStopped() || actor.isStopped()) {
+			return;
+		}
+		actor.monitors.add(this);
+		this.monitoredActors.add(actor);
+	}
+
+	public final void demonitor(Actor actor) {
+		if (this.isStopped() || actor.isStopped()) {
+			return;
+		}
+		actor.monitors.remove(this);
+		this.monitoredActors.remove(actor);
+	}
+
+	public final ActorGroup getGroup() {
+		return group;
+	}
+
+	public final String getName() {
+		if (this.isStopped()) {
+			return null;
+		}
+		return nameRef.get();
+	}
+
+	public static Actor current() {
+		return currentActor.get();
+	}
+
+	public static Object receive() throws ActorStoppedException, ActorInterruptedException {
+		Actor self = current();
+		if (null == self) {
+			return null;
+		}
+		self.checkStopped();
+		Object message = self.savedMessages.poll();
+		if (message == null) {
+			message = self.take(false, 0L);
+		}
+		return message;
+	}
+
+	public static void receive(Receive receive) throws ActorStoppedException, ActorInterruptedException {
+		Actor self = current();
+		if (null == self) {
+			return;
+		}
+		self.checkStopped();
+
+		boolean isTimed = receive.afterHook != null;
+		long deadline = isTimed ? System.nanoTime() + receive.afterTimeUnit.toNanos(receive.afterTime) : 0L;
+
+		for (Iterator<Object> iterator = self.savedMessages.iterator(); iterator.hasNext();) {
+			Object message = iterator.next();
+			ReceiveRule rule = receive.match(message);
+			if (rule != null) {
+				iterator.remove();
+				rule.receiver.accept(message);
+				return;
+			}
+		}
+
+		do {
+			Object message = self.take(isTimed, deadline);
+			if (message == null) {
+				receive.afterHook.run();
+				return;
+			}
+			ReceiveRule rule = receive.match(message);
+			if (rule != null) {
+				rule.receiver.accept(message);
+				return;
+			}
+			self.savedMessages.offer(message);
+		} while (true);
+	}
+
+	/**
+	 * Takes the next message of the mailbox, parking the thread while the
+	 * mailbox is empty. Returns {@code null} if the deadline is reached.
+	 */
+	private final Object take(boolean isTimed, long deadline) {
+		checkStopped();
+		Object message = mailbox.poll();
+		while (message == null) {
+			checkStopped();
+			isWaiting = true;
+			try {
+				if ((message = mailbox.poll()) != null || stopReasonRef.get() != null) {
+					continue;
+				}
+				if (isTimed) {
+					long timeout = deadline - System.nanoTime();
+					if (timeout <= 0L) {
+						return null;
+					}
+					LockSupport.parkNanos(this, timeout);
+				} else {
+					LockSupport.park(this);
+				}
+				if (Thread.interrupted()) {
+					throw new ActorInterruptedException(new InterruptedException());
+				}
+			} finally {
+				isWaiting = false;
+			}
+			message = mailbox.poll();
+		}
+		return message;
+	}
+
+	/**
+	 * Ends the receiving of a stopped actor, even if messages are still
+	 * pending.
+	 */
+	private final void checkStopped() {
+		if (stopReasonRef.get() != null) {
+			throw new ActorStoppedException(this);
+		}
+	}
+
+	private final void onStart() {
+		currentActor.set(this);
+		try {
+			Object reason;
+			try {
+				reason = run();
+			} catch (Exception ex) {
+				reason = ex;
+			}
+			stopReasonRef.compareAndSet(null, new Ref<>(reason));
+			stateRef.set(ActorState.STOPPED);
+			onStop(stopReasonRef.get().value);
+		} finally {
+			currentActor.remove();
+		}
+	}
+
+	private final void onStop(Object reason) {
+		String name = nameRef.get();
+		if (name != null) {
+			nameRef.set(null);
+			group.registry.computeIfPresent(name, (String nameKey, Actor actorValue) -> {
+				if (actorValue == this) {
+					return null;
+				} else {
+					return actorValue;
+				}
+			});
+		}
+
+		DownMessage downMessage = null;
+		for (Actor actor : this.monitors) {
+			actor.monitoredActors.remove(this);
+			if (downMessage == null) {
+				downMessage = new DownMessage(this, reason);
+			}
+			actor.send(downMessage);
+		}
+
+		ExitMessage exitMessage = null;
+		for (Actor actor : this.links) {
+			actor.links.remove(this);
+			if (actor.isTrapStop) {
+				if (exitMessage == null) {
+					exitMessage = new ExitMessage(this, reason);
+				}
+				actor.send(exitMessage);
+			} else {
+				actor.stop(reason);
+			}
+		}
+
+		for (Actor actor : this.monitoredActors) {
+			actor.monitors.remove(this);
+		}
+		this.mailbox.clear();
+		this.savedMessages.clear();
+		this.links.clear();
+		this.monitors.clear();
+		this.monitoredActors.clear();
+		this.thread = null;
+	}
+}
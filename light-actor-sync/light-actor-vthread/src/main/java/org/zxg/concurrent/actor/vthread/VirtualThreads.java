@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.vthread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Looks up the virtual thread factory of JDK 21 and later by reflection, so
+ * that this module still runs on older JDKs with daemon platform threads.
+ * 
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+final class VirtualThreads {
+
+	private static final ThreadFactory factory = createFactory();
+
+	private VirtualThreads() {
+	}
+
+	public static ThreadFactory factory() {
+		return factory;
+	}
+
+	public static boolean isSupported() {
+		return !(factory instanceof PlatformThreadFactory);
+	}
+
+	private static ThreadFactory createFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "light-actor-", 0L);
+			Method factoryMethod = builderClass.getMethod("factory");
+			return (ThreadFactory) factoryMethod.invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			return new PlatformThreadFactory();
+		}
+	}
+
+	private static final class PlatformThreadFactory implements ThreadFactory {
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
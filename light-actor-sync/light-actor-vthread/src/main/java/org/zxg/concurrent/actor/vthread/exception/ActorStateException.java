@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2019, Xianguang Zhou <xianguang.zhou@outlook.com>. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zxg.concurrent.actor.vthread.exception;
+
+import org.zxg.concurrent.actor.vthread.Actor;
+import org.zxg.concurrent.actor.vthread.ActorState;
+
+/**
+ * @author <a href="mailto:xianguang.zhou@outlook.com">Xianguang Zhou</a>
+ */
+public class ActorStateException extends ActorException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ActorStateException(Actor actor, ActorState state) {
+		super(String.format("The state of the actor \"%s\" is \"%s\".", actor.toString(), state.toString()));
+	}
+}